@@ -0,0 +1,259 @@
+package com.videostreaming.client;
+
+import com.videostreaming.conf.ConfigLoader;
+import com.videostreaming.model.CatalogUpdate;
+import com.videostreaming.model.Playlist;
+import com.videostreaming.model.VideoMetadata;
+import com.videostreaming.protocol.BinaryProtocol;
+import com.videostreaming.protocol.Opcode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Protocole binaire : poignée de main "VSBP" + version, puis trames [opcode][flags][longueur][contenu]
+// En v3, contrôle de flux par crédit : la connexion accorde client.credit.window octets puis
+// rend ceux des chunks traités (un CREDIT par quart de fenêtre) ; CHUNK_ACK n'est plus envoyé.
+class BinaryServerConnection implements ServerConnection {
+    static ConfigLoader config = new ConfigLoader(Paths.get("conf/conf.properties"));
+    private static final long CREDIT_WINDOW = Math.max(64 * 1024, config.getLong("client.credit.window", 8 * 1024 * 1024));
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final ChannelInputStream input;
+    private final DataInputStream in;
+    private final int version;
+    private DownloadSink sink; // utilisé par le seul fil qui lit les messages
+    private final boolean flowControl;
+    private int lastChunk;      // octets du dernier chunk remis, consommé à l'appel suivant
+    private long consumed;      // octets consommés pas encore rendus au serveur
+
+    // Catalogue reconstruit à partir du CATALOG initial et des CATALOG_DELTA (v2+)
+    private final Map<String, VideoMetadata> catalog = new LinkedHashMap<>();
+    private volatile long catalogVersion = -1;
+
+    BinaryServerConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.input = new ChannelInputStream(socket.getChannel() != null ? socket.getChannel()
+                : Channels.newChannel(socket.getInputStream()), 64 * 1024);
+        this.in = new DataInputStream(input);
+
+        BinaryProtocol.writeHandshake(out, BinaryProtocol.VERSION);
+        BinaryProtocol.FrameHeader hello = BinaryProtocol.readHeader(in);
+        if (hello.opcode() != Opcode.HELLO || hello.length() != 1) {
+            throw new StreamCorruptedException("Réponse de poignée de main invalide");
+        }
+        this.version = in.readUnsignedByte();
+        if (version == 0) {
+            throw new IOException("Version " + BinaryProtocol.VERSION + " du protocole refusée par le serveur");
+        }
+        System.out.println("Protocole binaire v" + version + " négocié.");
+        this.flowControl = version >= BinaryProtocol.FLOW_CONTROL;
+        if (flowControl) {
+            sendCredit(CREDIT_WINDOW);
+        }
+    }
+
+    @Override
+    public ServerMessage readMessage() throws IOException {
+        returnCredit();
+        while (true) {
+            BinaryProtocol.FrameHeader header = BinaryProtocol.readHeader(in);
+            if (header.opcode() == null) {
+                // Trame d'une version plus récente : ignorée
+                in.skipNBytes(header.length());
+                continue;
+            }
+
+            switch (header.opcode()) {
+                case VIDEO_CHUNK: {
+                    double progress = in.readDouble();
+                    int bytesRead = header.length() - 8;
+                    lastChunk = bytesRead;
+                    if (sink != null) {
+                        sink.receive(input, bytesRead);
+                        return ServerMessage.videoChunk(null, bytesRead, progress);
+                    }
+                    byte[] buffer = new byte[bytesRead];
+                    in.readFully(buffer, 0, bytesRead);
+                    return ServerMessage.videoChunk(buffer, bytesRead, progress);
+                }
+                case VIDEO_START:
+                    return ServerMessage.videoStart(in.readUTF(), in.readLong(), in.readDouble());
+                case CATALOG: {
+                    if (version < BinaryProtocol.CATALOG_VERSIONS) {
+                        return ServerMessage.catalog(BinaryProtocol.readVideos(in));
+                    }
+                    long catalogVersion = in.readLong();
+                    List<VideoMetadata> videos = BinaryProtocol.readVideos(in);
+                    catalog.clear();
+                    videos.forEach(video -> catalog.put(video.getId(), video));
+                    this.catalogVersion = catalogVersion;
+                    return ServerMessage.catalog(videos, catalogVersion);
+                }
+                case CATALOG_DELTA: {
+                    CatalogUpdate update = BinaryProtocol.readCatalogDelta(in);
+                    if (update.fromVersion() != catalogVersion) {
+                        // Delta calculé sur une autre version : redemander le catalogue complet
+                        catalogVersion = -1;
+                        syncCatalog();
+                        continue;
+                    }
+                    update.removed().forEach(catalog::remove);
+                    update.added().forEach(video -> catalog.put(video.getId(), video));
+                    catalogVersion = update.version();
+                    return ServerMessage.catalog(new ArrayList<>(catalog.values()), update.version());
+                }
+                case STATUS:
+                    return ServerMessage.status(in.readUTF());
+                case PLAYLIST: {
+                    Playlist playlist = new Playlist(in.readUTF());
+                    BinaryProtocol.readVideos(in).forEach(playlist::addVideo);
+                    return ServerMessage.playlist(playlist);
+                }
+                case VIDEO_END:
+                    return ServerMessage.of(ServerMessage.Type.VIDEO_END);
+                case VIDEO_ERROR:
+                    return ServerMessage.of(ServerMessage.Type.VIDEO_ERROR);
+                case VIDEO_CHANGE:
+                    return ServerMessage.of(ServerMessage.Type.VIDEO_CHANGE);
+                case VIDEO_SEEK:
+                    return ServerMessage.videoSeek(in.readLong(), in.readDouble());
+                default:
+                    in.skipNBytes(header.length());
+                    System.err.println("Trame inattendue ignorée : " + header.opcode());
+            }
+        }
+    }
+
+    // Le chunk remis au dernier appel a été traité : sa place est rendue au serveur par lots
+    private void returnCredit() throws IOException {
+        if (!flowControl || lastChunk == 0) {
+            return;
+        }
+        consumed += lastChunk;
+        lastChunk = 0;
+        if (consumed >= CREDIT_WINDOW / 4) {
+            sendCredit(consumed);
+            consumed = 0;
+        }
+    }
+
+    private void sendCredit(long bytes) throws IOException {
+        send(Opcode.CREDIT, payload -> payload.writeLong(bytes));
+    }
+
+    private synchronized void send(Opcode opcode) throws IOException {
+        BinaryProtocol.writeFrame(out, opcode);
+        out.flush();
+    }
+
+    private synchronized void send(Opcode opcode, BinaryProtocol.PayloadWriter payload) throws IOException {
+        BinaryProtocol.writeFrame(out, opcode, payload);
+        out.flush();
+    }
+
+    private void send(Opcode opcode, String... values) throws IOException {
+        send(opcode, payload -> {
+            for (String value : values) {
+                payload.writeUTF(value);
+            }
+        });
+    }
+
+    @Override
+    public void requestStream(String videoId) throws IOException {
+        send(Opcode.STREAM, videoId);
+    }
+
+    @Override
+    public void pause() throws IOException {
+        send(Opcode.PAUSE);
+    }
+
+    @Override
+    public void resume() throws IOException {
+        send(Opcode.RESUME);
+    }
+
+    @Override
+    public void stop() throws IOException {
+        send(Opcode.STOP);
+    }
+
+    @Override
+    public void changeVideo() throws IOException {
+        send(Opcode.CHANGE_VIDEO);
+    }
+
+    @Override
+    public void acknowledgeChunk() throws IOException {
+        if (!flowControl) {
+            send(Opcode.CHUNK_ACK);
+        }
+    }
+
+    @Override
+    public void setDownloadSink(DownloadSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void seekTime(double seconds) throws IOException {
+        send(Opcode.SEEK, payload -> {
+            payload.writeByte(BinaryProtocol.SEEK_TIME);
+            payload.writeDouble(seconds);
+        });
+    }
+
+    @Override
+    public void seekByte(long position) throws IOException {
+        send(Opcode.SEEK, payload -> {
+            payload.writeByte(BinaryProtocol.SEEK_BYTE);
+            payload.writeLong(position);
+        });
+    }
+
+    @Override
+    public void acknowledgeVideoStart(String videoId, long fileSize, double duration) {
+        // Rien à renvoyer en protocole binaire
+    }
+
+    @Override
+    public void syncCatalog() throws IOException {
+        if (version >= BinaryProtocol.CATALOG_VERSIONS) {
+            long held = catalogVersion;
+            send(Opcode.CATALOG_SYNC, payload -> payload.writeLong(held));
+        }
+    }
+
+    @Override
+    public void createPlaylist(String playlistName) throws IOException {
+        send(Opcode.CREATE_PLAYLIST, playlistName);
+    }
+
+    @Override
+    public void addToPlaylist(String playlistName, String videoId) throws IOException {
+        send(Opcode.ADD_TO_PLAYLIST, playlistName, videoId);
+    }
+
+    @Override
+    public void viewPlaylist(String playlistName) throws IOException {
+        send(Opcode.VIEW_PLAYLIST, playlistName);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,82 @@
+package com.videostreaming.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+// Lecture tamponnée d'un canal bloquant. readFully(ByteBuffer) vide d'abord le tampon puis lit
+// le reste directement dans la cible : le contenu d'un chunk va du socket au fichier mappé
+// sans copie dans un tableau.
+class ChannelInputStream extends InputStream {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    ChannelInputStream(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize).flip();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || !fill()) {
+            return 0;
+        }
+        int skipped = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    void readFully(ByteBuffer dst) throws IOException {
+        if (buffer.hasRemaining()) {
+            int n = Math.min(buffer.remaining(), dst.remaining());
+            dst.put(dst.position(), buffer, buffer.position(), n);
+            dst.position(dst.position() + n);
+            buffer.position(buffer.position() + n);
+        }
+        while (dst.hasRemaining()) {
+            if (channel.read(dst) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (buffer.hasRemaining()) {
+            return true;
+        }
+        buffer.clear();
+        int n = channel.read(buffer);
+        buffer.flip();
+        return n > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
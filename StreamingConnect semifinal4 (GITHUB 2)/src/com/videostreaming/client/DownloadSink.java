@@ -0,0 +1,296 @@
+package com.videostreaming.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Fichier de la vidéo en cours, préalloué à sa taille annoncée par VIDEO_START et mappé en
+// mémoire : la connexion lit le contenu des chunks directement dans le mappage, sans tableau
+// intermédiaire ni appel système par chunk. Le lecteur vidéo, qui lit le même fichier, voit
+// ces octets aussitôt (même cache de pages).
+// Les plages reçues sont suivies en mémoire ; pour un fichier du cache (VideoCache), elles
+// sont aussi enregistrées dans un relevé à côté du fichier, pour ne redemander ensuite que
+// les plages manquantes.
+class DownloadSink {
+    private static final int SEGMENT = 1 << 30; // un MappedByteBuffer ne dépasse pas 2 Go
+    private static final int MOOV = 0x6D6F6F76; // "moov"
+    private static final int MDAT = 0x6D646174; // "mdat"
+    private static final int MAGIC = 0x56535252; // "VSRR"
+    private static final int FORMAT_VERSION = 1;
+    private static final long SAVE_INTERVAL = 8 * 1024 * 1024; // relevé réécrit tous les 8 Mo reçus
+
+    private final Path file;
+    private final Path record;         // relevé des plages, null pour un fichier temporaire
+    private final long size;
+    private MappedByteBuffer[] segments;
+    private long position;             // octet où sera écrit le prochain chunk
+    private final TreeMap<Long, Long> ranges; // plages présentes [début, fin), disjointes et non contiguës
+    private volatile long watermark;   // octets présents d'un seul tenant depuis le début
+    private long unsaved;              // octets reçus depuis le dernier enregistrement du relevé
+
+    private DownloadSink(Path file, Path record, long size, MappedByteBuffer[] segments, TreeMap<Long, Long> ranges) {
+        this.file = file;
+        this.record = record;
+        this.size = size;
+        this.segments = segments;
+        this.ranges = ranges;
+        this.watermark = ranges.getOrDefault(0L, 0L);
+    }
+
+    static DownloadSink create(Path file, long size) throws IOException {
+        return create(file, size, null);
+    }
+
+    // "record" : relevé des plages déjà présentes dans "file", repris s'il existe
+    static DownloadSink create(Path file, long size, Path record) throws IOException {
+        TreeMap<Long, Long> ranges = record != null ? readRecord(record, size) : new TreeMap<>();
+        MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT - 1) / SEGMENT)];
+        // Le mappage reste valide une fois le canal fermé
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i * SEGMENT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(SEGMENT, size - start));
+            }
+        }
+        DownloadSink sink = new DownloadSink(file, record, size, segments, ranges);
+        if (record != null) {
+            sink.save(); // date du relevé = dernière ouverture (éviction LRU du cache)
+        }
+        return sink;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    // Les chunks suivants commencent à "position" (VIDEO_SEEK)
+    void seek(long position) {
+        this.position = position;
+    }
+
+    long position() {
+        return position;
+    }
+
+    long watermark() {
+        return watermark;
+    }
+
+    long size() {
+        return size;
+    }
+
+    // Contenu d'un chunk lu directement depuis la connexion
+    void receive(ChannelInputStream in, int length) throws IOException {
+        long start = position;
+        long end = reserve(length);
+        while (position < end) {
+            MappedByteBuffer segment = window(end);
+            int n = segment.remaining();
+            in.readFully(segment);
+            position += n;
+        }
+        filled(start, end);
+    }
+
+    // Contenu d'un chunk déjà en mémoire (protocole legacy)
+    void write(byte[] data, int offset, int length) throws IOException {
+        long start = position;
+        long end = reserve(length);
+        while (position < end) {
+            MappedByteBuffer segment = window(end);
+            int n = segment.remaining();
+            segment.put(data, offset, n);
+            offset += n;
+            position += n;
+        }
+        filled(start, end);
+    }
+
+    synchronized boolean isComplete() {
+        return watermark == size;
+    }
+
+    // Vrai si l'octet "offset" a déjà été reçu
+    synchronized boolean contains(long offset) {
+        Map.Entry<Long, Long> range = ranges.floorEntry(offset);
+        return range != null && offset < range.getValue();
+    }
+
+    // Premier octet manquant à partir de "offset" (size s'il n'en manque aucun)
+    synchronized long nextMissing(long offset) {
+        Map.Entry<Long, Long> range = ranges.floorEntry(offset);
+        return range != null && offset < range.getValue() ? range.getValue() : offset;
+    }
+
+    // Octets reçus, toutes plages confondues
+    synchronized long present() {
+        return total(ranges);
+    }
+
+    // Fin de la boîte moov si elle précède mdat au début du fichier (faststart), -1 si ce n'est
+    // pas le cas, 0 si la partie reçue ne permet pas encore de le savoir
+    long leadingMoovEnd() {
+        MappedByteBuffer[] mapped = segments;
+        long available = Math.min(watermark, SEGMENT);
+        if (mapped == null || mapped.length == 0) {
+            return -1;
+        }
+        // window() borne la limite du segment à l'écriture en cours : lecture sur une copie
+        // de la vue, étendue à toute sa capacité
+        ByteBuffer head = mapped[0].duplicate().clear();
+        long offset = 0;
+        while (offset + 8 <= available) {
+            long boxSize = head.getInt((int) offset) & 0xFFFFFFFFL;
+            int type = head.getInt((int) offset + 4);
+            if (boxSize == 1) {
+                if (offset + 16 > available) {
+                    return 0;
+                }
+                boxSize = head.getLong((int) offset + 8);
+            }
+            if (type == MOOV) {
+                return boxSize >= 8 ? offset + boxSize : -1;
+            }
+            if (type == MDAT || boxSize < 8) {
+                return -1;
+            }
+            offset += boxSize;
+        }
+        return offset >= SEGMENT ? -1 : 0;
+    }
+
+    // Sans effet si déjà fermé ; les plages restent consultables. Le mappage n'est libéré
+    // qu'une fois les segments récupérés par le GC : d'ici là, sous Windows, le fichier ne
+    // peut pas être supprimé (voir VideoCache.discard)
+    synchronized void close() {
+        if (segments == null) {
+            return;
+        }
+        if (record != null && unsaved > 0) {
+            save();
+        }
+        segments = null;
+    }
+
+    private long reserve(int length) throws IOException {
+        if (segments == null) {
+            throw new ClosedChannelException();
+        }
+        long end = position + length;
+        if (end > size) {
+            throw new IOException("Chunk au-delà de la taille annoncée (" + end + " > " + size + ")");
+        }
+        return end;
+    }
+
+    // Segment borné à la partie de [position, end) qu'il contient
+    private MappedByteBuffer window(long end) {
+        MappedByteBuffer segment = segments[(int) (position / SEGMENT)];
+        int offset = (int) (position % SEGMENT);
+        segment.limit((int) Math.min(segment.capacity(), offset + (end - position))).position(offset);
+        return segment;
+    }
+
+    // Seul le lecteur des messages écrit ; le fil JavaFX ne fait que lire watermark
+    private synchronized void filled(long start, long end) {
+        long length = end - start;
+        Map.Entry<Long, Long> previous = ranges.floorEntry(start);
+        if (previous != null && previous.getValue() >= start) {
+            start = previous.getKey();
+            end = Math.max(end, previous.getValue());
+        }
+        Map.Entry<Long, Long> next;
+        while ((next = ranges.ceilingEntry(start)) != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            ranges.remove(next.getKey());
+        }
+        ranges.put(start, end);
+        if (start == 0) {
+            watermark = end;
+        }
+        unsaved += length;
+        if (record != null && (unsaved >= SAVE_INTERVAL || end == size && start == 0)) {
+            save();
+        }
+    }
+
+    // Données écrites sur disque avant le relevé : un relevé ne couvre jamais d'octets perdus
+    private synchronized void save() {
+        Path tmp = record.resolveSibling(record.getFileName() + ".tmp");
+        try {
+            if (segments != null) {
+                for (MappedByteBuffer segment : segments) {
+                    segment.force();
+                }
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(size);
+                out.writeInt(ranges.size());
+                for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+                    out.writeLong(range.getKey());
+                    out.writeLong(range.getValue());
+                }
+            }
+            Files.move(tmp, record, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            unsaved = 0;
+        } catch (IOException e) {
+            System.err.println("Impossible d'enregistrer le relevé " + record + " : " + e.getMessage());
+        }
+    }
+
+    // Plages d'un relevé ; absent, illisible ou d'une autre taille : aucune
+    static TreeMap<Long, Long> readRecord(Path record, long size) {
+        TreeMap<Long, Long> ranges = new TreeMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(record)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new StreamCorruptedException("format inconnu");
+            }
+            if (size >= 0 && in.readLong() != size) {
+                return ranges;
+            } else if (size < 0) {
+                in.readLong();
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ranges.put(in.readLong(), in.readLong());
+            }
+        } catch (NoSuchFileException e) {
+            // Vidéo jamais reçue
+        } catch (IOException e) {
+            System.err.println("Relevé de plages ignoré (" + record + ") : " + e.getMessage());
+            ranges.clear();
+        }
+        return ranges;
+    }
+
+    // Octets présents selon un relevé (taille occupée dans le cache)
+    static long recordedBytes(Path record) {
+        return total(readRecord(record, -1));
+    }
+
+    private static long total(TreeMap<Long, Long> ranges) {
+        long bytes = 0;
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            bytes += range.getValue() - range.getKey();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,167 @@
+package com.videostreaming.client;
+
+import com.videostreaming.model.Playlist;
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.List;
+
+// Protocole d'origine : chaînes et objets via ObjectOutputStream / ObjectInputStream
+class LegacyServerConnection implements ServerConnection {
+    private final Socket socket;
+    private final ObjectOutputStream out;
+    private final ObjectInputStream in;
+    private DownloadSink sink;
+    private byte[] chunkBuffer = new byte[0]; // réutilisé d'un chunk à l'autre quand sink est défini
+
+    LegacyServerConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = new ObjectOutputStream(socket.getOutputStream());
+        this.in = new ObjectInputStream(socket.getInputStream());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ServerMessage readMessage() throws IOException {
+        Object response;
+        try {
+            response = in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Réponse inconnue du serveur", e);
+        }
+
+        if (response instanceof List) {
+            return ServerMessage.catalog((List<VideoMetadata>) response);
+        }
+        if (response instanceof Playlist) {
+            return ServerMessage.playlist((Playlist) response);
+        }
+        if ("VIDEO_START".equals(response)) {
+            try {
+                String videoId = (String) in.readObject();
+                long fileSize = in.readLong();
+                double duration = in.readDouble();
+                return ServerMessage.videoStart(videoId, fileSize, duration);
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+        if ("VIDEO_CHUNK".equals(response)) {
+            int bytesRead = in.readInt();
+            if (sink != null) {
+                if (chunkBuffer.length < bytesRead) {
+                    chunkBuffer = new byte[bytesRead];
+                }
+                in.readFully(chunkBuffer, 0, bytesRead);
+                double progress = in.readDouble();
+                sink.write(chunkBuffer, 0, bytesRead);
+                return ServerMessage.videoChunk(null, bytesRead, progress);
+            }
+            byte[] buffer = new byte[bytesRead];
+            in.readFully(buffer, 0, bytesRead);
+            double progress = in.readDouble();
+            return ServerMessage.videoChunk(buffer, bytesRead, progress);
+        }
+        if ("VIDEO_END".equals(response)) {
+            return ServerMessage.of(ServerMessage.Type.VIDEO_END);
+        }
+        if ("VIDEO_ERROR".equals(response)) {
+            return ServerMessage.of(ServerMessage.Type.VIDEO_ERROR);
+        }
+        if ("VIDEO_SEEK".equals(response)) {
+            long position = in.readLong();
+            double time = in.readDouble();
+            return ServerMessage.videoSeek(position, time);
+        }
+        if ("VIDEO_CHANGE".equals(response)) {
+            return ServerMessage.of(ServerMessage.Type.VIDEO_CHANGE);
+        }
+        return ServerMessage.status(String.valueOf(response));
+    }
+
+    private synchronized void send(String command) throws IOException {
+        out.writeObject(command);
+        out.flush();
+    }
+
+    @Override
+    public void requestStream(String videoId) throws IOException {
+        send("STREAM:" + videoId);
+    }
+
+    @Override
+    public void pause() throws IOException {
+        send("PAUSE");
+    }
+
+    @Override
+    public void resume() throws IOException {
+        send("RESUME");
+    }
+
+    @Override
+    public void stop() throws IOException {
+        send("STOP");
+    }
+
+    @Override
+    public void changeVideo() throws IOException {
+        send("CHANGE_VIDEO");
+    }
+
+    @Override
+    public void acknowledgeChunk() throws IOException {
+        send("CHUNK_ACK");
+    }
+
+    @Override
+    public void setDownloadSink(DownloadSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void seekTime(double seconds) throws IOException {
+        send("SEEK:TIME:" + seconds);
+    }
+
+    @Override
+    public void seekByte(long position) throws IOException {
+        send("SEEK:BYTE:" + position);
+    }
+
+    @Override
+    public synchronized void acknowledgeVideoStart(String videoId, long fileSize, double duration) throws IOException {
+        out.writeObject("VIDEO_START");
+        out.writeObject(videoId);
+        out.writeLong(fileSize);
+        out.writeDouble(duration);
+    }
+
+    @Override
+    public void syncCatalog() {
+        // Le serveur renvoie toujours le catalogue complet en protocole legacy
+    }
+
+    @Override
+    public void createPlaylist(String playlistName) throws IOException {
+        send("CREATE_PLAYLIST:" + playlistName);
+    }
+
+    @Override
+    public void addToPlaylist(String playlistName, String videoId) throws IOException {
+        send("ADD_TO_PLAYLIST:" + playlistName + ":" + videoId);
+    }
+
+    @Override
+    public void viewPlaylist(String playlistName) throws IOException {
+        send("VIEW_PLAYLIST:" + playlistName);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
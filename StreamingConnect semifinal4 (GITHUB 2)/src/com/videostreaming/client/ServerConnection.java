@@ -0,0 +1,60 @@
+package com.videostreaming.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+// Connexion au serveur de streaming : commandes envoyées et messages reçus,
+// en protocole binaire ("binary") ou sérialisation Java ("legacy")
+public interface ServerConnection extends Closeable {
+    ServerMessage readMessage() throws IOException;
+
+    void requestStream(String videoId) throws IOException;
+
+    void pause() throws IOException;
+
+    void resume() throws IOException;
+
+    void stop() throws IOException;
+
+    void changeVideo() throws IOException;
+
+    // Accusé d'un chunk traité ; sans effet en binaire v3 (crédit rendu par la connexion)
+    void acknowledgeChunk() throws IOException;
+
+    // Contenu des chunks suivants écrit directement dans "sink" (null : remis dans le message)
+    void setDownloadSink(DownloadSink sink);
+
+    // Reprise du flux à une position en secondes ou en octets ; le serveur répond par VIDEO_SEEK
+    void seekTime(double seconds) throws IOException;
+
+    void seekByte(long position) throws IOException;
+
+    // Accusé de VIDEO_START (le protocole legacy renvoie les métadonnées au serveur)
+    void acknowledgeVideoStart(String videoId, long fileSize, double duration) throws IOException;
+
+    // Annonce au serveur la version du catalogue détenue ; il ne renvoie que ce qui a changé
+    void syncCatalog() throws IOException;
+
+    void createPlaylist(String playlistName) throws IOException;
+
+    void addToPlaylist(String playlistName, String videoId) throws IOException;
+
+    void viewPlaylist(String playlistName) throws IOException;
+
+    static ServerConnection connect(String host, int port, String protocol) throws IOException {
+        // Socket issu d'un canal : le protocole binaire lit les chunks directement dans le fichier mappé
+        Socket socket = SocketChannel.open(new InetSocketAddress(host, port)).socket();
+        try {
+            if ("legacy".equalsIgnoreCase(protocol)) {
+                return new LegacyServerConnection(socket);
+            }
+            return new BinaryServerConnection(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.videostreaming.client;
+
+import com.videostreaming.model.Playlist;
+import com.videostreaming.model.VideoMetadata;
+
+import java.util.List;
+
+// Message reçu du serveur, quel que soit le protocole utilisé
+public class ServerMessage {
+    public enum Type { CATALOG, STATUS, PLAYLIST, VIDEO_START, VIDEO_CHUNK, VIDEO_END, VIDEO_ERROR, VIDEO_CHANGE, VIDEO_SEEK }
+
+    private final Type type;
+    private List<VideoMetadata> videos;
+    private long catalogVersion = -1;
+    private String text;
+    private Playlist playlist;
+    private String videoId;
+    private long fileSize;
+    private double duration;
+    private byte[] data;
+    private int length;
+    private double progress;
+    private long position;
+
+    private ServerMessage(Type type) {
+        this.type = type;
+    }
+
+    static ServerMessage of(Type type) {
+        return new ServerMessage(type);
+    }
+
+    static ServerMessage catalog(List<VideoMetadata> videos) {
+        ServerMessage message = new ServerMessage(Type.CATALOG);
+        message.videos = videos;
+        return message;
+    }
+
+    static ServerMessage catalog(List<VideoMetadata> videos, long catalogVersion) {
+        ServerMessage message = catalog(videos);
+        message.catalogVersion = catalogVersion;
+        return message;
+    }
+
+    static ServerMessage status(String text) {
+        ServerMessage message = new ServerMessage(Type.STATUS);
+        message.text = text;
+        return message;
+    }
+
+    static ServerMessage playlist(Playlist playlist) {
+        ServerMessage message = new ServerMessage(Type.PLAYLIST);
+        message.playlist = playlist;
+        return message;
+    }
+
+    static ServerMessage videoStart(String videoId, long fileSize, double duration) {
+        ServerMessage message = new ServerMessage(Type.VIDEO_START);
+        message.videoId = videoId;
+        message.fileSize = fileSize;
+        message.duration = duration;
+        return message;
+    }
+
+    // data null : contenu déjà écrit dans le DownloadSink de la connexion
+    static ServerMessage videoChunk(byte[] data, int length, double progress) {
+        ServerMessage message = new ServerMessage(Type.VIDEO_CHUNK);
+        message.data = data;
+        message.length = length;
+        message.progress = progress;
+        return message;
+    }
+
+    // Le serveur reprend le flux à "position" (octets), soit "time" secondes
+    static ServerMessage videoSeek(long position, double time) {
+        ServerMessage message = new ServerMessage(Type.VIDEO_SEEK);
+        message.position = position;
+        message.progress = time;
+        return message;
+    }
+
+    public Type getType() { return type; }
+    public List<VideoMetadata> getVideos() { return videos; }
+    public long getCatalogVersion() { return catalogVersion; }
+    public String getText() { return text; }
+    public Playlist getPlaylist() { return playlist; }
+    public String getVideoId() { return videoId; }
+    public long getFileSize() { return fileSize; }
+    public double getDuration() { return duration; }
+    public byte[] getData() { return data; }
+    public int getLength() { return length; }
+    public double getProgress() { return progress; }
+    public long getPosition() { return position; }
+
+    @Override
+    public String toString() {
+        return text != null ? type + ":" + text : type.toString();
+    }
+}
@@ -0,0 +1,135 @@
+package com.videostreaming.client;
+
+import com.videostreaming.conf.ConfigLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Cache disque des vidéos reçues, conservé d'une session à l'autre. Une vidéo y est rangée
+// sous son identifiant et sa taille (<id>-<taille>.mp4), avec le relevé des plages déjà
+// reçues (<id>-<taille>.ranges) : une vidéo revue ne redemande au serveur que ce qui manque.
+// Au-delà de client.cache.max octets présents, les vidéos ouvertes le moins récemment sont
+// supprimées. client.cache.max=0 désactive le cache (fichiers temporaires, comme avant).
+final class VideoCache {
+    static ConfigLoader config = new ConfigLoader(Paths.get("conf/conf.properties"));
+    static final Path DIRECTORY = Paths.get(config.getProperty("client.cache.dir", "clientCache"));
+    static final long MAX_BYTES = config.getLong("client.cache.max", 2L * 1024 * 1024 * 1024);
+
+    private static final String DATA = ".mp4";
+    private static final String RECORD = ".ranges";
+
+    private VideoCache() {
+    }
+
+    // Fichier de la vidéo, repris là où il en était s'il est déjà dans le cache. "inUse" :
+    // fichiers ouverts par ailleurs (lecture en cours, préchargement), jamais supprimés.
+    static synchronized DownloadSink open(String videoId, long size, Path... inUse) throws IOException {
+        if (MAX_BYTES <= 0 || size > MAX_BYTES) {
+            return DownloadSink.create(Files.createTempFile("streaming", DATA), size);
+        }
+        Files.createDirectories(DIRECTORY);
+        String key = videoId.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + size;
+        Path file = DIRECTORY.resolve(key + DATA);
+        Path record = DIRECTORY.resolve(key + RECORD);
+        if (!Files.exists(file)) {
+            Files.deleteIfExists(record); // relevé d'un fichier supprimé à la main
+        }
+        evict(size, key, Arrays.asList(inUse));
+        DownloadSink sink = DownloadSink.create(file, size, record);
+        if (sink.isComplete()) {
+            System.out.println("Cache : " + videoId + " déjà reçue en entier");
+        } else if (sink.present() > 0) {
+            System.out.println("Cache : reprise de " + videoId + " (" + sink.present() + " octets déjà reçus)");
+        }
+        return sink;
+    }
+
+    static boolean contains(Path file) {
+        return file != null && file.toAbsolutePath().startsWith(DIRECTORY.toAbsolutePath());
+    }
+
+    // Fichier dont la lecture est terminée : supprimé s'il est temporaire, gardé s'il est en cache
+    static void discard(Path file) {
+        if (file == null || contains(file)) {
+            return;
+        }
+        try {
+            if (Files.deleteIfExists(file)) {
+                System.out.println("Fichier temporaire supprimé");
+            }
+        } catch (IOException e) {
+            // Fichier encore mappé (Windows) : supprimé à l'arrêt du client
+            System.err.println("Impossible de supprimer " + file + " : " + e.getMessage());
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    // Libère la place de "incoming" octets : vidéos les moins récemment ouvertes d'abord
+    // (date de leur relevé), fichiers sans relevé (orphelins) d'emblée
+    private static void evict(long incoming, String keep, List<Path> inUse) {
+        List<Path> records = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(DIRECTORY)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(DATA) && !Files.exists(sibling(path, RECORD)) && !inUse.contains(path)) {
+                    delete(path);
+                } else if (name.endsWith(RECORD) && !name.equals(keep + RECORD)
+                        && !inUse.contains(sibling(path, DATA))) {
+                    records.add(path);
+                }
+            }
+            records.sort(Comparator.comparing(VideoCache::lastUsed));
+            long used = incoming;
+            long[] present = new long[records.size()];
+            for (int i = 0; i < records.size(); i++) {
+                present[i] = DownloadSink.recordedBytes(records.get(i));
+                used += present[i];
+            }
+            for (int i = 0; i < records.size() && used > MAX_BYTES; i++) {
+                Path record = records.get(i);
+                if (!delete(sibling(record, DATA))) {
+                    continue; // relevé gardé : nouvel essai à la prochaine ouverture
+                }
+                Files.deleteIfExists(record);
+                used -= present[i];
+                System.out.println("Cache : " + sibling(record, "").getFileName() + " supprimé ("
+                        + present[i] + " octets)");
+            }
+        } catch (IOException e) {
+            System.err.println("Éviction du cache vidéo impossible : " + e.getMessage());
+        }
+    }
+
+    // false si le fichier n'a pas pu être supprimé (encore mappé sous Windows)
+    private static boolean delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Cache : impossible de supprimer " + file + " : " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static Path sibling(Path path, String extension) {
+        String name = path.getFileName().toString();
+        return path.resolveSibling(name.substring(0, name.lastIndexOf('.')) + extension);
+    }
+
+    private static FileTime lastUsed(Path record) {
+        try {
+            return Files.getLastModifiedTime(record);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
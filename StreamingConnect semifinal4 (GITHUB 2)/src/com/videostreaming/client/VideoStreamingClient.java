@@ -1,6 +1,7 @@
 package com.videostreaming.client;
 
 import com.videostreaming.conf.ConfigLoader;
+import com.videostreaming.model.Playlist;
 import com.videostreaming.model.VideoMetadata;
 import com.videostreaming.server.ClientState;
 import javafx.application.Application;
@@ -21,11 +22,12 @@ import javafx.util.Duration;
 
 import java.awt.*;
 import java.io.*;
-import java.net.Socket;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.io.File;
 
@@ -35,31 +37,81 @@ public class VideoStreamingClient extends Application {
     static int port = Integer.parseInt(config.getProperty("server.port"));
     private static final String SERVER_HOST = serverAddress;
     private static final int SERVER_PORT = port;
+    // "binary" (par défaut) ou "legacy" pour l'ancien protocole ObjectOutputStream
+    private static final String PROTOCOL = config.getProperty("client.protocol", "binary");
+    // Octets du début de la vidéo suivante d'une playlist téléchargés d'avance (0 = désactivé)
+    private static final long PREFETCH_BUDGET = config.getLong("client.prefetch.budget", 4 * 1024 * 1024);
 
-    private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private ServerConnection connection;
     private ListView<VideoMetadata> videoList;
     private MediaView mediaView;
     private MediaPlayer mediaPlayer;
     private Slider progressBar = new Slider();
 
 
-    private Path tempVideoFile;
-    private BufferedOutputStream tempFileOutputStream;
+    private volatile Path tempVideoFile;
+    // Fichier temporaire mappé, rempli directement par la connexion (positionnel : après un
+    // SEEK, les chunks arrivent à partir d'un autre octet)
+    private volatile DownloadSink downloadSink;
+    // Fichier du flux en cours de réception : celui de la vidéo lue, ou celui de la vidéo
+    // suivante pendant son préchargement (fil de lecture des messages uniquement)
+    private DownloadSink streamSink;
+    private boolean seekRequested; // SEEK envoyé pour sauter une plage déjà en cache, VIDEO_SEEK attendu
+    // STOP envoyé (vidéo complétée par le cache, changement de vidéo) : plus aucun SEEK pour ce
+    // flux, dont les derniers chunks sont encore en route
+    private volatile boolean streamStopped;
+    private long moovEnd;         // fin de moov en tête du fichier (faststart), -1 sinon, 0 inconnu
+    private long videoFileSize;
     private boolean isVideoStarted = false;
     private Stage videoStage;
     private double videoDuration;
     private ListView<String> playlistListView;
 
+    // Lecture d'une playlist : une fois la vidéo en cours entièrement reçue, le début de la
+    // suivante est téléchargé (PREFETCH_BUDGET octets, puis PAUSE) pour démarrer sans attente
+    private final Object playlistLock = new Object();
+    private Playlist activePlaylist;
+    private int playlistIndex;
+    private PrefetchedVideo prefetched;
+    private boolean prefetchRequested; // STREAM envoyé pour un préchargement, VIDEO_START attendu
+    private String playlistToPlay;     // VIEW_PLAYLIST envoyé pour lancer cette playlist
+
+    // Réponses attendues aux commandes de playlist, dans l'ordre d'envoi : seul le fil de
+    // lecture des messages lit la connexion et les leur remet
+    private final Queue<CompletableFuture<ServerMessage>> pendingReplies = new ConcurrentLinkedQueue<>();
+
+    private interface Request {
+        void send() throws IOException;
+    }
+
+    private static final class PrefetchedVideo {
+        final String videoId;
+        final Path file;
+        final DownloadSink sink;
+        final long fileSize;
+        final double duration;
+        boolean paused;   // budget atteint, flux en pause côté serveur
+        boolean complete; // vidéo entièrement reçue
+
+        PrefetchedVideo(String videoId, Path file, DownloadSink sink, long fileSize, double duration) {
+            this.videoId = videoId;
+            this.file = file;
+            this.sink = sink;
+            this.fileSize = fileSize;
+            this.duration = duration;
+        }
+    }
+
     public void start(Stage primaryStage) {
         try {
-            socket = new Socket(serverAddress, port);
-            out = new ObjectOutputStream(socket.getOutputStream());
-            in = new ObjectInputStream(socket.getInputStream());
+            connection = ServerConnection.connect(serverAddress, port, PROTOCOL);
 
             videoList = new ListView<>();
-            List<VideoMetadata> availableVideos = (List<VideoMetadata>) in.readObject();
+            ServerMessage catalog = connection.readMessage();
+            if (catalog.getType() != ServerMessage.Type.CATALOG) {
+                throw new IOException("Catalogue attendu, reçu : " + catalog);
+            }
+            List<VideoMetadata> availableVideos = catalog.getVideos();
             Platform.runLater(() -> videoList.getItems().addAll(availableVideos));
 
             videoList.setOnMouseClicked(event -> {
@@ -67,8 +119,12 @@ public class VideoStreamingClient extends Application {
                 if (selectedVideo != null) {
                     try {
                         System.out.println("Vidéo sélectionnée actuellement : " + selectedVideo.getTitle());
-                        out.writeObject("STREAM:" + selectedVideo.getId());
-                        out.flush();
+                        stopPlaylist();
+                        // Le serveur ne prend un STREAM qu'en dehors d'un envoi : la vidéo en
+                        // cours est arrêtée d'abord (commandes traitées dans l'ordre)
+                        streamStopped = true;
+                        connection.stop();
+                        connection.requestStream(selectedVideo.getId());
                     } catch (IOException e) {
                         e.printStackTrace();
                     }
@@ -109,6 +165,8 @@ public class VideoStreamingClient extends Application {
             viewPlaylistNameField.setPromptText("Nom de la playlist à voir");
             Button viewPlaylistButton = new Button("Voir Playlist");
             viewPlaylistButton.setOnAction(e -> viewPlaylist(viewPlaylistNameField.getText()));
+            Button playPlaylistButton = new Button("Lire Playlist");
+            playPlaylistButton.setOnAction(e -> playPlaylist(viewPlaylistNameField.getText()));
 
             playlistListView = new ListView<>();
 
@@ -122,6 +180,7 @@ public class VideoStreamingClient extends Application {
                     new Label("Voir une Playlist"),
                     viewPlaylistNameField,
                     viewPlaylistButton,
+                    playPlaylistButton,
                     playlistListView
             );
 
@@ -137,7 +196,7 @@ public class VideoStreamingClient extends Application {
             primaryStage.setScene(scene);
             primaryStage.show();
 
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             e.printStackTrace();
             showErrorDialog("Erreur de connexion", "Impossible de se connecter au serveur.");
         }
@@ -147,107 +206,404 @@ public class VideoStreamingClient extends Application {
     private void listenForServerResponses() {
         try {
             while (true) {
-                Object response = in.readObject();
+                ServerMessage response = connection.readMessage();
                 if (response == null) {
                     System.err.println("Réponse nulle reçue, arrêt de la lecture.");
                     break;
                 }
 
-                if ("VIDEO_START".equals(response)) {
-                    handleVideoStart();
-                } else if ("VIDEO_CHUNK".equals(response)) {
-                    handleVideoChunk();
-                } else if ("VIDEO_END".equals(response)) {
+                if (response.getType() == ServerMessage.Type.VIDEO_START) {
+                    handleVideoStart(response);
+                } else if (response.getType() == ServerMessage.Type.VIDEO_CHUNK) {
+                    handleVideoChunk(response);
+                } else if (response.getType() == ServerMessage.Type.VIDEO_END) {
                     handleVideoEnd();
-                } else if ("VIDEO_ERROR".equals(response)) {
+                } else if (response.getType() == ServerMessage.Type.VIDEO_ERROR) {
                     handleVideoError();
-                } else if ("VIDEO_CHANGE".equals(response)) {
+                } else if (response.getType() == ServerMessage.Type.VIDEO_CHANGE) {
                     handleVideoChange();
+                } else if (response.getType() == ServerMessage.Type.VIDEO_SEEK) {
+                    handleVideoSeek(response);
+                } else if (response.getType() == ServerMessage.Type.PLAYLIST || isPlaylistReply(response)) {
+                    CompletableFuture<ServerMessage> pending = pendingReplies.poll();
+                    if (pending != null) {
+                        pending.complete(response);
+                    } else {
+                        System.err.println("Réponse de playlist inattendue : " + response.getText());
+                    }
+                } else if (response.getType() == ServerMessage.Type.STATUS) {
+                    // Réponses aux PAUSE / RESUME / STOP envoyés pour les playlists
+                    System.out.println("Statut reçu : " + response.getText());
+                } else if (response.getType() == ServerMessage.Type.CATALOG) {
+                    // Catalogue modifié côté serveur (complet ou reconstruit à partir d'un delta)
+                    List<VideoMetadata> videos = response.getVideos();
+                    Platform.runLater(() -> videoList.getItems().setAll(videos));
                 } else {
                     System.err.println("Message inconnu reçu : " + response);
                     break;
                 }
-                if (in == null || out == null) {
-                    System.err.println("Erreur de connexion: les flux sont nuls.");
-                    break;
-                }
-
             }
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             System.err.println("Erreur lors de la lecture des réponses : ");
             e.printStackTrace();
             Platform.runLater(() -> showErrorDialog("Erreur de streaming", "Une erreur est survenue."));
         }
     }
 
-    private void handleVideoStart() throws IOException, ClassNotFoundException {
+    private void handleVideoStart(ServerMessage message) throws IOException {
         System.out.println("Démarrage du streaming vidéo...");
-        String videoId = (String) in.readObject();
-        long fileSize = in.readLong();
-        videoDuration = in.readDouble();
+        String videoId = message.getVideoId();
+        long fileSize = message.getFileSize();
+        double duration = message.getDuration();
         System.out.println("Envoi : VIDEO_START");
 
-        out.writeObject("VIDEO_START");
-        out.writeObject(videoId);
-        out.writeLong(fileSize);
-        out.writeDouble(videoDuration);
+        connection.acknowledgeVideoStart(videoId, fileSize, duration);
 
-        System.out.println("Taille : " + fileSize + " bytes, Durée : " + videoDuration + " secondes.");
+        System.out.println("Taille : " + fileSize + " bytes, Durée : " + duration + " secondes.");
+
+        // Flux précédent interrompu (préchargement abandonné...) : son relevé est enregistré
+        if (streamSink != null && streamSink != downloadSink) {
+            streamSink.close();
+        }
+        seekRequested = false;
+        streamStopped = false;
+
+        synchronized (playlistLock) {
+            if (prefetchRequested) {
+                // Vidéo suivante de la playlist : reçue à part, la lecture en cours continue
+                prefetchRequested = false;
+                streamSink = VideoCache.open(videoId, fileSize, tempVideoFile);
+                connection.setDownloadSink(streamSink);
+                prefetched = new PrefetchedVideo(videoId, streamSink.file(), streamSink, fileSize, duration);
+                System.out.println("Préchargement de " + videoId + " (" + PREFETCH_BUDGET + " octets)");
+                requestMissingRanges(streamSink);
+                if (streamSink != null) {
+                    pauseIfPrefetchBudgetReached(streamSink);
+                }
+                return;
+            }
+        }
+        videoDuration = duration;
 
         // Réinitialiser le lecteur vidéo
         Platform.runLater(this::resetMediaPlayer);
 
-        // Supprimer l'ancien fichier temporaire
-        if (tempVideoFile != null && tempVideoFile.toFile().exists()) {
-            System.out.println("Fichier Temporaire supprimé");
-            tempVideoFile.toFile().delete();
-        }
+        // Supprimer l'ancien fichier s'il est temporaire (une vidéo du cache est gardée)
+        VideoCache.discard(tempVideoFile);
 
-        // Création d'un fichier temporaire pour stocker la vidéo
-        tempVideoFile = Files.createTempFile("streaming", ".mp4");
-        tempFileOutputStream = new BufferedOutputStream(new FileOutputStream(tempVideoFile.toFile()));
+        // Fichier de la vidéo : celui du cache, avec ce qui en a déjà été reçu
+        if (downloadSink != null) {
+            downloadSink.close();
+        }
+        Path prefetchFile;
+        synchronized (playlistLock) {
+            prefetchFile = prefetched != null ? prefetched.file : null;
+        }
+        downloadSink = VideoCache.open(videoId, fileSize, prefetchFile);
+        tempVideoFile = downloadSink.file();
+        streamSink = downloadSink;
+        connection.setDownloadSink(downloadSink);
+        videoFileSize = fileSize;
+        moovEnd = 0;
+        maybeStartPlayback(downloadSink);
+        requestMissingRanges(downloadSink);
     }
 
-    private void handleVideoChunk() throws IOException {
-        if (tempVideoFile == null) {
+    private void handleVideoChunk(ServerMessage message) throws IOException {
+        DownloadSink sink = streamSink;
+        if (sink == null) {
+            if (streamStopped) {
+                // Chunks partis avant le STOP d'une vidéo que le cache a complétée
+                connection.acknowledgeChunk();
+                return;
+            }
             System.err.println("Erreur : Aucun fichier temporaire n'est initialisé pour l'écriture.");
             return; // Ignore les chunks jusqu'à ce que VIDEO_START soit reçu
         }
 
-        int bytesRead = in.readInt();
-        byte[] buffer = new byte[bytesRead];
-        in.readFully(buffer, 0, bytesRead);
+        int bytesRead = message.getLength();
 
-        double progress = in.readDouble();
+        double progress = message.getProgress();
         System.out.println("Chunk reçu : " + bytesRead + " bytes, Progression : " + progress + " s.");
 
-        // Écriture dans le fichier temporaire
-        if (tempFileOutputStream != null) {
-            tempFileOutputStream.write(buffer, 0, bytesRead);
-            tempFileOutputStream.flush();
+        // Contenu déjà écrit dans le fichier temporaire par la connexion, sauf s'il arrive
+        // dans le message (protocole sans écriture directe)
+        if (message.getData() != null) {
+            sink.write(message.getData(), 0, bytesRead);
+        }
+        if (sink != downloadSink) {
+            // Vidéo suivante en préchargement : pas encore lue
+            pauseIfPrefetchBudgetReached(sink);
+            requestMissingRanges(sink);
+            connection.acknowledgeChunk();
+            return;
         }
 
         // Mise à jour de la barre de progression / Téléchargement de la video
         // Platform.runLater(() -> progressBar.setValue((progress / videoDuration) * 100));
 
-        // Démarrage de la lecture dès qu'une partie est disponible
-        if (tempVideoFile.toFile().length() > 1000 * 1024) { // Seuil de 1MB
+        maybeStartPlayback(sink);
+        requestMissingRanges(sink);
+
+        // Confirmation au serveur (en binaire v3, la connexion rend du crédit à la place)
+        connection.acknowledgeChunk();
+    }
+
+    // Démarrage de la lecture dès qu'une partie est disponible : moov reçu en entier pour
+    // un fichier faststart, sinon un seuil de 1MB (ou la vidéo entière, déjà en cache)
+    private void maybeStartPlayback(DownloadSink sink) {
+        if (moovEnd == 0) {
+            moovEnd = sink.leadingMoovEnd();
+        }
+        long downloadedBytes = sink.watermark();
+        if ((moovEnd > 0 && downloadedBytes >= moovEnd) || downloadedBytes > 1000 * 1024 || sink.isComplete()) {
             if (!isVideoStarted) {
                 isVideoStarted = true;
-                Platform.runLater(() -> prepareMediaPlayer(tempVideoFile));
+                Path file = sink.file();
+                Platform.runLater(() -> prepareMediaPlayer(file));
             }
         }
+    }
 
-        // Confirmation au serveur
-        out.writeObject("CHUNK_ACK");
-        out.flush();
+    // Le serveur envoie la vidéo dans l'ordre : arrivé sur une plage déjà en cache, on lui
+    // demande de sauter à la suivante qui manque. Vidéo complète : le flux est arrêté.
+    private void requestMissingRanges(DownloadSink sink) throws IOException {
+        if (streamStopped) {
+            return;
+        }
+        if (sink.isComplete()) {
+            System.out.println("Vidéo complète dans le cache, arrêt du flux.");
+            streamSink = null;
+            connection.setDownloadSink(null);
+            connection.stop();
+            streamStopped = true;
+            streamFinished(sink);
+            return;
+        }
+        if (seekRequested || !sink.contains(sink.position())) {
+            return;
+        }
+        long next = sink.nextMissing(sink.position());
+        if (next >= sink.size()) {
+            next = sink.nextMissing(0);
+        }
+        seekRequested = true;
+        connection.seekByte(next);
     }
 
     private void handleVideoEnd() throws IOException {
         System.out.println("Streaming terminé.");
-        if (tempFileOutputStream != null) {
-            tempFileOutputStream.close();
-            System.out.println("Fichier temporaire fermé.");
+        DownloadSink sink = streamSink;
+        if (sink == null) {
+            return;
+        }
+        if (!sink.isComplete() && sink == downloadSink && !streamStopped) {
+            // Fin du fichier atteinte, mais il manque une plage plus haut (SEEK de l'utilisateur) :
+            // le serveur reprend à partir d'elle
+            seekRequested = true;
+            connection.seekByte(sink.nextMissing(0));
+            return;
+        }
+        connection.setDownloadSink(null);
+        streamSink = null;
+        streamFinished(sink);
+    }
+
+    private void streamFinished(DownloadSink sink) throws IOException {
+        sink.close();
+        System.out.println("Fichier temporaire fermé.");
+        synchronized (playlistLock) {
+            if (prefetched != null && prefetched.sink == sink) {
+                prefetched.complete = true; // vidéo suivante reçue en entier avant son tour
+                return;
+            }
+        }
+        // Vidéo en cours entièrement reçue : la bande passante libre sert à la suivante
+        prefetchNext();
+    }
+
+    // Les chunks suivants commencent à la position annoncée par le serveur
+    private void handleVideoSeek(ServerMessage message) {
+        System.out.println("Reprise du flux à l'octet " + message.getPosition() + " (" + message.getProgress() + " s).");
+        seekRequested = false;
+        if (streamSink != null) {
+            streamSink.seek(message.getPosition());
+        }
+    }
+
+    // Préchargement arrivé au budget : le flux est mis en pause jusqu'au tour de la vidéo.
+    // Les chunks déjà en route s'ajoutent à la partie préchargée.
+    private void pauseIfPrefetchBudgetReached(DownloadSink sink) throws IOException {
+        synchronized (playlistLock) {
+            if (prefetched != null && prefetched.sink == sink && !prefetched.paused
+                    && sink.watermark() >= PREFETCH_BUDGET) {
+                prefetched.paused = true;
+                connection.pause();
+                System.out.println("Préchargement de " + prefetched.videoId + " en pause à " + sink.watermark() + " octets");
+            }
+        }
+    }
+
+    // Demande le début de la vidéo suivante de la playlist en cours (aucun effet sinon)
+    private void prefetchNext() throws IOException {
+        synchronized (playlistLock) {
+            if (activePlaylist == null || PREFETCH_BUDGET <= 0 || prefetched != null || prefetchRequested
+                    || playlistIndex + 1 >= activePlaylist.getVideos().size()) {
+                return;
+            }
+            prefetchRequested = true;
+            connection.requestStream(activePlaylist.getVideos().get(playlistIndex + 1).getId());
+        }
+    }
+
+    // Lecture d'une playlist : la réponse à VIEW_PLAYLIST est traitée par handlePlaylist
+    private void playPlaylist(String playlistName) {
+        try {
+            synchronized (playlistLock) {
+                playlistToPlay = playlistName;
+            }
+            request(() -> connection.viewPlaylist(playlistName)).thenAccept(response -> {
+                try {
+                    if (response.getType() == ServerMessage.Type.PLAYLIST) {
+                        handlePlaylist(response);
+                        return;
+                    }
+                    synchronized (playlistLock) {
+                        if (playlistName.equals(playlistToPlay)) {
+                            playlistToPlay = null;
+                        }
+                    }
+                    Platform.runLater(() -> showInfoDialog("Erreur", response.getText()));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Commande de playlist dont la réponse sera remise par le fil de lecture des messages
+    // (les actions qui en dépendent s'y exécutent)
+    private CompletableFuture<ServerMessage> request(Request command) throws IOException {
+        CompletableFuture<ServerMessage> reply = new CompletableFuture<>();
+        synchronized (pendingReplies) {
+            pendingReplies.add(reply);
+            try {
+                command.send();
+            } catch (IOException e) {
+                pendingReplies.remove(reply);
+                throw e;
+            }
+        }
+        return reply;
+    }
+
+    // Réponses du serveur aux commandes de playlist (les autres statuts répondent à PAUSE, STOP...)
+    private static boolean isPlaylistReply(ServerMessage message) {
+        if (message.getType() != ServerMessage.Type.STATUS || message.getText() == null) {
+            return false;
+        }
+        String text = message.getText();
+        return text.startsWith("PLAYLIST_") || text.equals("VIDEO_ADDED_TO_PLAYLIST") || text.equals("VIDEO_NOT_FOUND");
+    }
+
+    private void handlePlaylist(ServerMessage message) throws IOException {
+        Playlist playlist = message.getPlaylist();
+        synchronized (playlistLock) {
+            if (playlistToPlay == null || !playlistToPlay.equals(playlist.getName())) {
+                return;
+            }
+            playlistToPlay = null;
+            if (playlist.getVideos().isEmpty()) {
+                return;
+            }
+            cancelPrefetch();
+            activePlaylist = playlist;
+            playlistIndex = 0;
+            System.out.println("Lecture de la playlist " + playlist.getName() + " (" + playlist.getVideos().size() + " vidéos)");
+            // Le serveur ne prend un STREAM qu'en dehors d'un envoi : la vidéo en cours est arrêtée
+            streamStopped = true;
+            connection.stop();
+            connection.requestStream(playlist.getVideos().get(0).getId());
+        }
+    }
+
+    // Vidéo suivante de la playlist, à la fin de la lecture ou sur demande (fil JavaFX)
+    private void playNextInPlaylist() {
+        try {
+            PrefetchedVideo ready;
+            synchronized (playlistLock) {
+                if (activePlaylist == null) {
+                    return;
+                }
+                if (playlistIndex + 1 >= activePlaylist.getVideos().size()) {
+                    activePlaylist = null;
+                    return;
+                }
+                playlistIndex++;
+                VideoMetadata next = activePlaylist.getVideos().get(playlistIndex);
+                ready = prefetched != null && prefetched.videoId.equals(next.getId()) ? prefetched : null;
+                if (ready == null) {
+                    cancelPrefetch();
+                    if (prefetchRequested) {
+                        // Préchargement demandé mais pas commencé : il devient la lecture normale
+                        prefetchRequested = false;
+                    } else {
+                        System.out.println("Vidéo suivante non préchargée : " + next.getTitle());
+                        streamStopped = true;
+                        connection.stop();
+                        connection.requestStream(next.getId());
+                    }
+                    return;
+                }
+                prefetched = null;
+                if (ready.paused && !ready.complete) {
+                    connection.resume();
+                }
+            }
+
+            // Début déjà téléchargé : la lecture démarre aussitôt, la suite arrive dans le même fichier
+            System.out.println("Vidéo suivante préchargée : " + ready.videoId + " (" + ready.sink.watermark() + " octets)");
+            Path previous = tempVideoFile;
+            resetMediaPlayer();
+            if (videoStage != null) {
+                videoStage.close();
+            }
+            VideoCache.discard(previous);
+            videoFileSize = ready.fileSize;
+            videoDuration = ready.duration;
+            isVideoStarted = true;
+            tempVideoFile = ready.file;
+            downloadSink = ready.sink;
+            prepareMediaPlayer(ready.file);
+            if (ready.complete) {
+                prefetchNext();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Abandon du préchargement en cours (appelé sous playlistLock)
+    private void cancelPrefetch() throws IOException {
+        if (prefetched == null) {
+            return;
+        }
+        if (!prefetched.complete) {
+            streamStopped = true;
+            connection.stop();
+        }
+        VideoCache.discard(prefetched.file);
+        prefetched = null;
+    }
+
+    // Sélection d'une vidéo hors playlist
+    private void stopPlaylist() throws IOException {
+        synchronized (playlistLock) {
+            cancelPrefetch();
+            activePlaylist = null;
+            playlistToPlay = null;
         }
     }
 
@@ -257,25 +613,31 @@ public class VideoStreamingClient extends Application {
 
     private void handleVideoChange() {
         System.out.println("Changement de vidéo reçu.");
+        synchronized (playlistLock) {
+            if (prefetched != null && prefetched.sink == streamSink) {
+                prefetched = null;
+            }
+        }
 
         // Réinitialiser le lecteur vidéo
         Platform.runLater(() -> {
             resetMediaPlayer(); // Réinitialiser le lecteur vidéo
-            // Supprimer l'ancien fichier temporaire si nécessaire
-            if (tempVideoFile != null && tempVideoFile.toFile().exists()) {
-                System.out.println("Fichier temporaire supprimé");
-                tempVideoFile.toFile().delete();
-            }
+            // Supprimer l'ancien fichier s'il est temporaire
+            VideoCache.discard(tempVideoFile);
 
             // Réinitialiser le fichier temporaire et le flux de sortie
             tempVideoFile = null; // Réinitialiser le fichier temporaire
-            tempFileOutputStream = null; // Réinitialiser le flux de sortie
         });
+        if (streamSink != null) {
+            connection.setDownloadSink(null);
+            streamSink.close();
+            streamSink = null;
+        }
+        downloadSink = null;
 
         // Vous pouvez également envoyer une confirmation au serveur si nécessaire
         try {
-            out.writeObject("CHANGE_VIDEO");
-            out.flush();
+            connection.changeVideo();
         } catch (IOException e) {
             System.err.println("Erreur lors de l'envoi de la confirmation de changement de vidéo.");
             e.printStackTrace();
@@ -303,6 +665,12 @@ public class VideoStreamingClient extends Application {
         controlBar.setPadding(new Insets(10));
         controlBar.setStyle("-fx-background-color: rgba(0, 0, 0, 0.7);");
         controlBar.getChildren().addAll(playPauseButton, progressBar);
+        if (activePlaylist != null) {
+            Button nextButton = new Button(">|");
+            nextButton.setStyle("-fx-font-size: 12px;");
+            nextButton.setOnAction(event -> playNextInPlaylist());
+            controlBar.getChildren().add(nextButton);
+        }
 
         mediaView = new MediaView();
         rootComponent.setCenter(mediaView);
@@ -321,6 +689,8 @@ public class VideoStreamingClient extends Application {
         Media media = new Media(videoFile.toUri().toString());
         mediaPlayer = new MediaPlayer(media);
         mediaView.setMediaPlayer(mediaPlayer);
+        // Playlist : la vidéo suivante enchaîne à la fin de celle-ci
+        mediaPlayer.setOnEndOfMedia(this::playNextInPlaylist);
         mediaPlayer.setOnError(() -> {
             System.out.println("Erreur de lecture de vidéo : " + mediaPlayer.getError().getMessage());
         });
@@ -345,6 +715,7 @@ public class VideoStreamingClient extends Application {
             isDragging.set(false);
             double newTime = progressBar.getValue() / 100 * mediaPlayer.getTotalDuration().toSeconds();
             mediaPlayer.seek(Duration.seconds(newTime));
+            requestSeekIfNotDownloaded(newTime);
         });
 
         progressBar.setOnMouseDragged(event -> {
@@ -362,6 +733,22 @@ public class VideoStreamingClient extends Application {
         progressBar.prefWidthProperty().bind(videoStage.widthProperty().subtract(50));
     }
 
+    // Position pas encore reçue (ni en cache) : on demande au serveur de reprendre le flux à cet endroit
+    private void requestSeekIfNotDownloaded(double time) {
+        if (videoFileSize <= 0 || videoDuration <= 0) {
+            return;
+        }
+        DownloadSink sink = downloadSink;
+        long target = (long) (time / videoDuration * videoFileSize);
+        if (sink == null || !sink.contains(Math.min(target, videoFileSize - 1))) {
+            try {
+                connection.seekTime(time);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     private void resetMediaPlayer() {
         if (mediaPlayer != null) {
             mediaPlayer.stop();
@@ -377,37 +764,34 @@ public class VideoStreamingClient extends Application {
 
     private void createPlaylist(String playlistName) {
         try {
-            out.writeObject("CREATE_PLAYLIST:" + playlistName);
-            String response = (String) in.readObject();
-            showInfoDialog("Résultat", response);
-        } catch (IOException | ClassNotFoundException e) {
+            request(() -> connection.createPlaylist(playlistName))
+                    .thenAccept(response -> Platform.runLater(() -> showInfoDialog("Résultat", response.getText())));
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     private void addToPlaylist(String playlistName, String videoId) {
         try {
-            out.writeObject("ADD_TO_PLAYLIST:" + playlistName + ":" + videoId);
-            String response = (String) in.readObject();
-            showInfoDialog("Résultat", response);
-        } catch (IOException | ClassNotFoundException e) {
+            request(() -> connection.addToPlaylist(playlistName, videoId))
+                    .thenAccept(response -> Platform.runLater(() -> showInfoDialog("Résultat", response.getText())));
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     private void viewPlaylist(String playlistName) {
         try {
-            out.writeObject("VIEW_PLAYLIST:" + playlistName);
-            Object response = in.readObject();
-
-            if (response instanceof String) {
-                showInfoDialog("Erreur", (String) response);
-            } else if (response instanceof com.videostreaming.model.Playlist) {
-                com.videostreaming.model.Playlist playlist = (com.videostreaming.model.Playlist) response;
-                playlistListView.getItems().clear();
-                playlistListView.getItems().add(playlist.toString());
-            }
-        } catch (IOException | ClassNotFoundException e) {
+            request(() -> connection.viewPlaylist(playlistName)).thenAccept(response -> Platform.runLater(() -> {
+                if (response.getType() == ServerMessage.Type.STATUS) {
+                    showInfoDialog("Erreur", response.getText());
+                } else if (response.getType() == ServerMessage.Type.PLAYLIST) {
+                    com.videostreaming.model.Playlist playlist = response.getPlaylist();
+                    playlistListView.getItems().clear();
+                    playlistListView.getItems().add(playlist.toString());
+                }
+            }));
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
@@ -19,4 +19,19 @@ public class ConfigLoader {
     public String getProperty(String key) {
         return properties.getProperty(key);
     }
+
+    // Propriété optionnelle : valeur par défaut si la clé est absente du fichier
+    public String getProperty(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
 }
@@ -0,0 +1,22 @@
+package com.videostreaming.model;
+
+import java.util.List;
+
+// Mise à jour du catalogue entre deux versions : soit le catalogue complet (full),
+// soit les vidéos ajoutées et les identifiants retirés depuis fromVersion.
+// Les retraits s'appliquent avant les ajouts.
+public record CatalogUpdate(long fromVersion, long version, boolean full,
+                            List<VideoMetadata> added, List<String> removed) {
+
+    public static CatalogUpdate full(long version, List<VideoMetadata> videos) {
+        return new CatalogUpdate(-1, version, true, videos, List.of());
+    }
+
+    public static CatalogUpdate delta(long fromVersion, long version, List<VideoMetadata> added, List<String> removed) {
+        return new CatalogUpdate(fromVersion, version, false, List.copyOf(added), List.copyOf(removed));
+    }
+
+    public int size() {
+        return added.size() + removed.size();
+    }
+}
@@ -1,56 +1,27 @@
 package com.videostreaming.model;
 import java.io.Serializable;
-import java.nio.file.Path;
 import java.util.UUID;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 
 
 public class VideoMetadata implements Serializable {
+    // Valeur implicite de la classe d'origine : les clients legacy la désérialisent toujours
+    private static final long serialVersionUID = -6434674771591744916L;
+
     private String id;
     private String title;
     private String filePath;
     private long fileSize;
     private long duration; // en secondes, ou autre unité appropriée
 
-    public VideoMetadata() {
-        this.id = UUID.randomUUID().toString();
-    }
+    // Informations du conteneur (analyse MP4) : transient pour garder le format de
+    // sérialisation attendu par les clients existants
+    private transient long bitrate; // bits/s
+    private transient String codec;
+    private transient int width;
+    private transient int height;
 
-    // Constructeur avec extraction de la taille et durée
-    public VideoMetadata(Path videoPath) {
+    public VideoMetadata() {
         this.id = UUID.randomUUID().toString();
-        this.title = videoPath.getFileName().toString();
-        this.filePath = videoPath.toString();
-        try {
-            this.fileSize = java.nio.file.Files.size(videoPath);
-            this.duration = extractVideoDuration(videoPath);
-        } catch (java.io.IOException e) {
-            this.fileSize = -1;
-            this.duration = 0; // Durée non trouvée
-        }
-    }
-
-    // Méthode pour extraire la durée de la vidéo
-    private long extractVideoDuration(Path videoPath) {
-        long videoDuration = 0;
-        try {
-            // Utilisation de FFmpeg pour extraire la durée (ou une bibliothèque équivalente)
-            ProcessBuilder pb = new ProcessBuilder(
-                    "ffprobe", "-v", "error", "-show_entries", "format=duration",
-                    "-of", "default=noprint_wrappers=1:nokey=1", videoPath.toString()
-            );
-            Process process = pb.start();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String durationOutput = reader.readLine();
-            if (durationOutput != null) {
-                videoDuration = (long) Double.parseDouble(durationOutput); // En secondes
-            }
-            process.waitFor();
-        } catch (Exception e) {
-            System.err.println("Impossible d'extraire la durée de la vidéo : " + e.getMessage());
-        }
-        return videoDuration;
     }
 
     // Getters et setters
@@ -64,6 +35,14 @@ public class VideoMetadata implements Serializable {
     public void setFileSize(long fileSize) { this.fileSize = fileSize; }
     public long getDuration() { return duration; }
     public void setDuration(long duration) { this.duration = duration; }
+    public long getBitrate() { return bitrate; }
+    public void setBitrate(long bitrate) { this.bitrate = bitrate; }
+    public String getCodec() { return codec; }
+    public void setCodec(String codec) { this.codec = codec; }
+    public int getWidth() { return width; }
+    public void setWidth(int width) { this.width = width; }
+    public int getHeight() { return height; }
+    public void setHeight(int height) { this.height = height; }
 
     @Override
     public String toString() {
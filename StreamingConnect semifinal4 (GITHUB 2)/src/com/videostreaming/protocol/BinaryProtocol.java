@@ -0,0 +1,189 @@
+package com.videostreaming.protocol;
+
+import com.videostreaming.model.CatalogUpdate;
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Protocole binaire versionné.
+// Poignée de main : le client envoie "VSBP" + sa version (1 octet), le serveur répond
+// par une trame HELLO contenant la version retenue (0 = refusée).
+// Trame : opcode (1 octet), flags (1 octet), longueur du contenu (int), contenu.
+// Un client "legacy" commence par l'en-tête ObjectOutputStream (0xACED) : le serveur
+// choisit le protocole d'après les 4 premiers octets reçus.
+// Version 2 : CATALOG porte la version du catalogue, le serveur n'envoie ensuite que des
+// CATALOG_DELTA (rien si le client est à jour) et le client peut annoncer la version qu'il
+// détient par CATALOG_SYNC.
+// Version 3 : contrôle de flux par crédit. Le client accorde des octets (CREDIT) selon la
+// place libre de son tampon et les rend au fil de la consommation, au lieu d'un CHUNK_ACK
+// par chunk ; le serveur envoie tant qu'il lui reste du crédit.
+public final class BinaryProtocol {
+    public static final byte[] MAGIC = {'V', 'S', 'B', 'P'};
+    public static final int VERSION = 3;
+    public static final int MIN_VERSION = 1;
+    // Première version avec catalogue versionné (CATALOG_DELTA, CATALOG_SYNC)
+    public static final int CATALOG_VERSIONS = 2;
+    // Première version avec contrôle de flux par crédit (CREDIT)
+    public static final int FLOW_CONTROL = 3;
+    // SEEK : unité de la position demandée, suivie d'un double (secondes) ou d'un long (octets)
+    public static final int SEEK_TIME = 0;
+    public static final int SEEK_BYTE = 1;
+    public static final int HANDSHAKE_SIZE = MAGIC.length + 1;
+    public static final int HEADER_SIZE = 1 + 1 + 4;
+    // Limite des trames de contrôle (les chunks vidéo ne sont jamais lus en entier en mémoire côté serveur)
+    public static final int MAX_CONTROL_PAYLOAD = 16 * 1024 * 1024;
+
+    public record FrameHeader(Opcode opcode, int code, int flags, int length) {
+    }
+
+    private BinaryProtocol() {
+    }
+
+    public static boolean isBinaryMagic(byte[] bytes) {
+        if (bytes.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void writeHandshake(OutputStream out, int version) throws IOException {
+        out.write(MAGIC);
+        out.write(version);
+        out.flush();
+    }
+
+    // Version retenue par le serveur pour la version proposée par le client (0 = aucune)
+    public static int negotiate(int clientVersion) {
+        int version = Math.min(clientVersion, VERSION);
+        return version >= MIN_VERSION ? version : 0;
+    }
+
+    public static void writeHeader(DataOutput out, Opcode opcode, int length) throws IOException {
+        out.writeByte(opcode.getCode());
+        out.writeByte(0);
+        out.writeInt(length);
+    }
+
+    // En-tête seul, pour les envois directs sur un canal (zéro-copie)
+    public static ByteBuffer header(Opcode opcode, int length, int extraCapacity) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + extraCapacity);
+        header.put((byte) opcode.getCode());
+        header.put((byte) 0);
+        header.putInt(length);
+        return header;
+    }
+
+    public static FrameHeader readHeader(DataInput in) throws IOException {
+        int code = in.readUnsignedByte();
+        int flags = in.readUnsignedByte();
+        int length = in.readInt();
+        if (length < 0) {
+            throw new StreamCorruptedException("Longueur de trame invalide : " + length);
+        }
+        return new FrameHeader(Opcode.fromCode(code), code, flags, length);
+    }
+
+    // Décode un en-tête si au moins HEADER_SIZE octets sont disponibles (la position avance)
+    public static FrameHeader readHeader(ByteBuffer in) throws IOException {
+        if (in.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int code = in.get() & 0xFF;
+        int flags = in.get() & 0xFF;
+        int length = in.getInt();
+        if (length < 0) {
+            throw new StreamCorruptedException("Longueur de trame invalide : " + length);
+        }
+        return new FrameHeader(Opcode.fromCode(code), code, flags, length);
+    }
+
+    public static void writeFrame(DataOutputStream out, Opcode opcode) throws IOException {
+        writeHeader(out, opcode, 0);
+    }
+
+    public static void writeFrame(DataOutputStream out, Opcode opcode, PayloadWriter payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        payload.write(new DataOutputStream(bytes));
+        writeHeader(out, opcode, bytes.size());
+        bytes.writeTo(out);
+    }
+
+    public interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    public static DataInputStream payload(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    // Métadonnées d'une vidéo : le chemin du fichier reste côté serveur
+    public static void writeVideo(DataOutput out, VideoMetadata video) throws IOException {
+        out.writeUTF(video.getId());
+        out.writeUTF(video.getTitle() != null ? video.getTitle() : "");
+        out.writeLong(video.getFileSize());
+        out.writeLong(video.getDuration());
+    }
+
+    public static VideoMetadata readVideo(DataInput in) throws IOException {
+        VideoMetadata video = new VideoMetadata();
+        video.setId(in.readUTF());
+        video.setTitle(in.readUTF());
+        video.setFileSize(in.readLong());
+        video.setDuration(in.readLong());
+        return video;
+    }
+
+    public static void writeVideos(DataOutput out, List<VideoMetadata> videos) throws IOException {
+        out.writeInt(videos.size());
+        for (VideoMetadata video : videos) {
+            writeVideo(out, video);
+        }
+    }
+
+    public static List<VideoMetadata> readVideos(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<VideoMetadata> videos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            videos.add(readVideo(in));
+        }
+        return videos;
+    }
+
+    // CATALOG_DELTA : version de départ, nouvelle version, identifiants retirés, vidéos ajoutées
+    public static void writeCatalogDelta(DataOutput out, CatalogUpdate update) throws IOException {
+        out.writeLong(update.fromVersion());
+        out.writeLong(update.version());
+        out.writeInt(update.removed().size());
+        for (String id : update.removed()) {
+            out.writeUTF(id);
+        }
+        writeVideos(out, update.added());
+    }
+
+    public static CatalogUpdate readCatalogDelta(DataInput in) throws IOException {
+        long fromVersion = in.readLong();
+        long version = in.readLong();
+        int count = in.readInt();
+        List<String> removed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            removed.add(in.readUTF());
+        }
+        return CatalogUpdate.delta(fromVersion, version, readVideos(in), removed);
+    }
+}
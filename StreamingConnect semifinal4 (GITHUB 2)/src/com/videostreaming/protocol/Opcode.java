@@ -0,0 +1,55 @@
+package com.videostreaming.protocol;
+
+// Codes d'opération du protocole binaire
+public enum Opcode {
+    // Serveur -> client
+    HELLO(0x01),
+    CATALOG(0x40),
+    STATUS(0x41),
+    PLAYLIST(0x42),
+    CATALOG_DELTA(0x43),
+    VIDEO_START(0x50),
+    VIDEO_CHUNK(0x51),
+    VIDEO_END(0x52),
+    VIDEO_ERROR(0x53),
+    VIDEO_CHANGE(0x54),
+    VIDEO_SEEK(0x55),
+
+    // Client -> serveur
+    EXIT(0x10),
+    STREAM(0x11),
+    PAUSE(0x12),
+    RESUME(0x13),
+    STOP(0x14),
+    CHANGE_VIDEO(0x15),
+    CHUNK_ACK(0x16),
+    CATALOG_SYNC(0x17),
+    SEEK(0x18),
+    CREDIT(0x19),
+    CREATE_PLAYLIST(0x20),
+    ADD_TO_PLAYLIST(0x21),
+    VIEW_PLAYLIST(0x22);
+
+    private static final Opcode[] BY_CODE = new Opcode[256];
+
+    static {
+        for (Opcode opcode : values()) {
+            BY_CODE[opcode.code] = opcode;
+        }
+    }
+
+    private final int code;
+
+    Opcode(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    // null si le code est inconnu
+    public static Opcode fromCode(int code) {
+        return BY_CODE[code & 0xFF];
+    }
+}
@@ -0,0 +1,131 @@
+package com.videostreaming.protocol;
+
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Protocole entre le serveur de contrôle et un nœud de stockage distant (StorageNode).
+// Poignée de main : le serveur de contrôle envoie "VSSN" + sa version (1 octet), le nœud
+// répond par la version retenue (0 = refusée).
+// Requête : identifiant (int), opération (1 octet), longueur du contenu (int), contenu.
+// Réponse : identifiant de la requête, statut (1 octet), longueur du contenu (int), contenu.
+// Les requêtes peuvent être envoyées à la suite sans attendre les réponses (pipeline) :
+// le nœud y répond dans l'ordre, l'identifiant permet de les rapprocher.
+public final class StorageProtocol {
+    public static final byte[] MAGIC = {'V', 'S', 'S', 'N'};
+    public static final int VERSION = 1;
+    public static final int HANDSHAKE_SIZE = MAGIC.length + 1;
+    public static final int HEADER_SIZE = 4 + 1 + 4;
+
+    // CATALOG : version détenue (long, -1 = aucune) -> version + vidéos, ou NOT_MODIFIED
+    public static final int CATALOG = 1;
+    // READ : identifiant de la vidéo, position (long), longueur (int) -> octets lus
+    public static final int READ = 2;
+
+    public static final int OK = 0;
+    public static final int NOT_MODIFIED = 1;
+    public static final int ERROR = 2;
+
+    // Plus grande lecture servie en une réponse (les lectures plus longues sont découpées)
+    public static final int MAX_READ = 4 * 1024 * 1024;
+    // Limite du contenu des requêtes et des réponses autres que READ
+    public static final int MAX_PAYLOAD = 16 * 1024 * 1024;
+
+    public record Header(int requestId, int code, int length) {
+    }
+
+    private StorageProtocol() {
+    }
+
+    public static void writeHandshake(OutputStream out, int version) throws IOException {
+        out.write(MAGIC);
+        out.write(version);
+        out.flush();
+    }
+
+    public static boolean isMagic(byte[] bytes) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Même format pour les requêtes (code = opération) et les réponses (code = statut)
+    public static void writeHeader(DataOutput out, int requestId, int code, int length) throws IOException {
+        out.writeInt(requestId);
+        out.writeByte(code);
+        out.writeInt(length);
+    }
+
+    // En-tête seul, pour les envois directs sur un canal (zéro-copie)
+    public static ByteBuffer header(int requestId, int code, int length) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(requestId);
+        header.put((byte) code);
+        header.putInt(length);
+        return header.flip();
+    }
+
+    public static Header readHeader(DataInput in) throws IOException {
+        int requestId = in.readInt();
+        int code = in.readUnsignedByte();
+        int length = in.readInt();
+        if (length < 0) {
+            throw new StreamCorruptedException("Longueur de trame invalide : " + length);
+        }
+        return new Header(requestId, code, length);
+    }
+
+    // Métadonnées complètes (informations du conteneur comprises) : le serveur de contrôle
+    // n'a pas à sonder à nouveau les fichiers d'un nœud
+    public static void writeVideo(DataOutput out, VideoMetadata video) throws IOException {
+        out.writeUTF(video.getId());
+        out.writeUTF(video.getTitle() != null ? video.getTitle() : "");
+        out.writeLong(video.getFileSize());
+        out.writeLong(video.getDuration());
+        out.writeLong(video.getBitrate());
+        out.writeUTF(video.getCodec() != null ? video.getCodec() : "");
+        out.writeInt(video.getWidth());
+        out.writeInt(video.getHeight());
+    }
+
+    public static VideoMetadata readVideo(DataInput in) throws IOException {
+        VideoMetadata video = new VideoMetadata();
+        video.setId(in.readUTF());
+        video.setTitle(in.readUTF());
+        video.setFileSize(in.readLong());
+        video.setDuration(in.readLong());
+        video.setBitrate(in.readLong());
+        String codec = in.readUTF();
+        video.setCodec(codec.isEmpty() ? null : codec);
+        video.setWidth(in.readInt());
+        video.setHeight(in.readInt());
+        return video;
+    }
+
+    public static void writeCatalog(DataOutput out, long version, List<VideoMetadata> videos) throws IOException {
+        out.writeLong(version);
+        out.writeInt(videos.size());
+        for (VideoMetadata video : videos) {
+            writeVideo(out, video);
+        }
+    }
+
+    public static List<VideoMetadata> readVideos(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<VideoMetadata> videos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            videos.add(readVideo(in));
+        }
+        return videos;
+    }
+}
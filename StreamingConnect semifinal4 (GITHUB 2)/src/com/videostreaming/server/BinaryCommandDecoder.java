@@ -0,0 +1,75 @@
+package com.videostreaming.server;
+
+import com.videostreaming.protocol.BinaryProtocol;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+// Décodage des trames de commande binaires vers les commandes texte traitées par le serveur
+class BinaryCommandDecoder implements CommandDecoder {
+
+    @Override
+    public String decode(ByteBuffer in) throws IOException {
+        while (in.remaining() >= BinaryProtocol.HEADER_SIZE) {
+            int start = in.position();
+            BinaryProtocol.FrameHeader header = BinaryProtocol.readHeader(in);
+            if (header.length() > BinaryProtocol.MAX_CONTROL_PAYLOAD) {
+                throw new StreamCorruptedException("Trame trop grande : " + header.length());
+            }
+            if (in.remaining() < header.length()) {
+                in.position(start);
+                return null;
+            }
+            byte[] payload = new byte[header.length()];
+            in.get(payload);
+            String command = toCommand(header, payload);
+            if (command != null) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    // null pour une trame sans effet (ex. opcode inconnu d'une version plus récente)
+    static String toCommand(BinaryProtocol.FrameHeader header, byte[] payload) throws IOException {
+        if (header.opcode() == null) {
+            System.err.println("Opcode inconnu ignoré : " + header.code());
+            return null;
+        }
+        DataInputStream in = BinaryProtocol.payload(payload);
+        switch (header.opcode()) {
+            case EXIT:
+                return "EXIT";
+            case STREAM:
+                return "STREAM:" + in.readUTF();
+            case PAUSE:
+                return "PAUSE";
+            case RESUME:
+                return "RESUME";
+            case STOP:
+                return "STOP";
+            case CHANGE_VIDEO:
+                return "CHANGE_VIDEO";
+            case CHUNK_ACK:
+                return "CHUNK_ACK";
+            case SEEK:
+                return in.readUnsignedByte() == BinaryProtocol.SEEK_BYTE
+                        ? "SEEK:BYTE:" + in.readLong()
+                        : "SEEK:TIME:" + in.readDouble();
+            case CREDIT:
+                return "CREDIT:" + in.readLong();
+            case CATALOG_SYNC:
+                return "CATALOG_SYNC:" + in.readLong();
+            case CREATE_PLAYLIST:
+                return "CREATE_PLAYLIST:" + in.readUTF();
+            case ADD_TO_PLAYLIST:
+                return "ADD_TO_PLAYLIST:" + in.readUTF() + ":" + in.readUTF();
+            case VIEW_PLAYLIST:
+                return "VIEW_PLAYLIST:" + in.readUTF();
+            default:
+                throw new StreamCorruptedException("Opcode inattendu côté serveur : " + header.opcode());
+        }
+    }
+}
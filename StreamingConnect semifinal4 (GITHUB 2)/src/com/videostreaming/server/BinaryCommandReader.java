@@ -0,0 +1,54 @@
+package com.videostreaming.server;
+
+import com.videostreaming.protocol.BinaryProtocol;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+class BinaryCommandReader implements CommandReader {
+    private final DataInputStream in;
+
+    BinaryCommandReader(DataInputStream in) {
+        this.in = in;
+    }
+
+    // Les trames sans effet (opcode inconnu...) sont sautées, comme en NIO : null = fin du flux
+    @Override
+    public String readCommand() throws IOException {
+        while (true) {
+            BinaryProtocol.FrameHeader header;
+            try {
+                header = BinaryProtocol.readHeader(in);
+            } catch (EOFException e) {
+                return null;
+            }
+            String command = BinaryCommandDecoder.toCommand(header, readPayload(header));
+            if (command != null) {
+                return command;
+            }
+        }
+    }
+
+    @Override
+    public String pollCommand() throws IOException {
+        // Une trame commencée arrive en entier très vite : on ne bloque que sur sa fin
+        while (in.available() >= BinaryProtocol.HEADER_SIZE) {
+            BinaryProtocol.FrameHeader header = BinaryProtocol.readHeader(in);
+            String command = BinaryCommandDecoder.toCommand(header, readPayload(header));
+            if (command != null) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    private byte[] readPayload(BinaryProtocol.FrameHeader header) throws IOException {
+        if (header.length() > BinaryProtocol.MAX_CONTROL_PAYLOAD) {
+            throw new IOException("Trame trop grande : " + header.length());
+        }
+        byte[] payload = new byte[header.length()];
+        in.readFully(payload);
+        return payload;
+    }
+}
@@ -0,0 +1,123 @@
+package com.videostreaming.server;
+
+import com.videostreaming.model.CatalogUpdate;
+import com.videostreaming.model.Playlist;
+import com.videostreaming.model.VideoMetadata;
+import com.videostreaming.protocol.BinaryProtocol;
+import com.videostreaming.protocol.Opcode;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Protocole binaire : trames [opcode][flags][longueur][contenu], sans table de références
+class BinaryResponseEncoder implements ResponseEncoder {
+    private final DataOutputStream out;
+    private int version = BinaryProtocol.VERSION;
+
+    BinaryResponseEncoder(OutputStream output) {
+        this.out = new DataOutputStream(output);
+    }
+
+    void hello(int version) throws IOException {
+        this.version = version;
+        BinaryProtocol.writeFrame(out, Opcode.HELLO, payload -> payload.writeByte(version));
+    }
+
+    @Override
+    public void catalog(List<VideoMetadata> videos) throws IOException {
+        BinaryProtocol.writeFrame(out, Opcode.CATALOG, payload -> BinaryProtocol.writeVideos(payload, videos));
+    }
+
+    @Override
+    public boolean supportsCatalogUpdates() {
+        return version >= BinaryProtocol.CATALOG_VERSIONS;
+    }
+
+    @Override
+    public void catalogUpdate(CatalogUpdate update) throws IOException {
+        if (!supportsCatalogUpdates()) {
+            catalog(update.added()); // v1 : toujours complète, sans version
+        } else if (update.full()) {
+            BinaryProtocol.writeFrame(out, Opcode.CATALOG, payload -> {
+                payload.writeLong(update.version());
+                BinaryProtocol.writeVideos(payload, update.added());
+            });
+        } else {
+            BinaryProtocol.writeFrame(out, Opcode.CATALOG_DELTA, payload -> BinaryProtocol.writeCatalogDelta(payload, update));
+        }
+    }
+
+    @Override
+    public void message(String message) throws IOException {
+        BinaryProtocol.writeFrame(out, Opcode.STATUS, payload -> payload.writeUTF(message));
+    }
+
+    @Override
+    public void playlist(Playlist playlist) throws IOException {
+        BinaryProtocol.writeFrame(out, Opcode.PLAYLIST, payload -> {
+            payload.writeUTF(playlist.getName());
+            BinaryProtocol.writeVideos(payload, playlist.getVideos());
+        });
+    }
+
+    @Override
+    public void videoStart(String videoId, long fileSize, double duration) throws IOException {
+        BinaryProtocol.writeFrame(out, Opcode.VIDEO_START, payload -> {
+            payload.writeUTF(videoId);
+            payload.writeLong(fileSize);
+            payload.writeDouble(duration);
+        });
+    }
+
+    @Override
+    public void videoEnd() throws IOException {
+        BinaryProtocol.writeFrame(out, Opcode.VIDEO_END);
+    }
+
+    @Override
+    public void videoError() throws IOException {
+        BinaryProtocol.writeFrame(out, Opcode.VIDEO_ERROR);
+    }
+
+    @Override
+    public void videoChange() throws IOException {
+        BinaryProtocol.writeFrame(out, Opcode.VIDEO_CHANGE);
+    }
+
+    @Override
+    public void videoSeek(long position, double time) throws IOException {
+        BinaryProtocol.writeFrame(out, Opcode.VIDEO_SEEK, payload -> {
+            payload.writeLong(position);
+            payload.writeDouble(time);
+        });
+    }
+
+    // VIDEO_CHUNK : progression (double) puis le contenu brut
+    @Override
+    public void chunk(byte[] data, int offset, int length, double progress) throws IOException {
+        BinaryProtocol.writeHeader(out, Opcode.VIDEO_CHUNK, 8 + length);
+        out.writeDouble(progress);
+        out.write(data, offset, length);
+    }
+
+    @Override
+    public ByteBuffer chunkHeader(int length, double progress) throws IOException {
+        out.flush();
+        ByteBuffer header = BinaryProtocol.header(Opcode.VIDEO_CHUNK, 8 + length, 8);
+        header.putDouble(progress);
+        return header.flip();
+    }
+
+    @Override
+    public ByteBuffer chunkTrailer(double progress) {
+        return null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,61 @@
+package com.videostreaming.server;
+
+import com.videostreaming.conf.ConfigLoader;
+import com.videostreaming.model.VideoMetadata;
+
+import java.nio.file.Paths;
+
+// Cadence d'envoi d'une session : débit cible dérivé du débit moyen de la vidéo
+// (taille / durée), rafale initiale pour un démarrage rapide, et plafond global
+// de sortie partagé par toutes les sessions du serveur.
+class BitratePacer {
+    static ConfigLoader config = new ConfigLoader(Paths.get("conf/conf.properties"));
+    private static final boolean ENABLED = Boolean.parseBoolean(config.getProperty("pacing.enabled", "true"));
+    private static final double RATE_FACTOR = Double.parseDouble(config.getProperty("pacing.rate.factor", "1.25"));
+    private static final long DEFAULT_RATE = config.getLong("pacing.default.rate", 2_500_000); // octets/s si la durée est inconnue
+    private static final double BURST_SECONDS = Double.parseDouble(config.getProperty("pacing.burst.seconds", "10"));
+    private static final long EGRESS_MAX = config.getLong("server.egress.max", 0); // octets/s, 0 = illimité
+
+    // Plafond de sortie commun au serveur (null = pas de plafond)
+    private static final TokenBucket GLOBAL_EGRESS = EGRESS_MAX > 0 ? new TokenBucket(EGRESS_MAX, EGRESS_MAX, EGRESS_MAX) : null;
+
+    private final TokenBucket session;
+
+    private BitratePacer(TokenBucket session) {
+        this.session = session;
+    }
+
+    static BitratePacer forVideo(VideoMetadata video) {
+        if (!ENABLED) {
+            return new BitratePacer(null);
+        }
+        double rate = targetRate(video);
+        double burst = Math.max(rate * BURST_SECONDS, 1);
+        return new BitratePacer(new TokenBucket(rate, burst, burst));
+    }
+
+    // Débit cible en octets/s : débit moyen du conteneur s'il est connu, sinon taille / durée
+    static double targetRate(VideoMetadata video) {
+        if (video.getBitrate() > 0) {
+            return video.getBitrate() / 8.0 * RATE_FACTOR;
+        }
+        if (video.getDuration() <= 0 || video.getFileSize() <= 0) {
+            return DEFAULT_RATE;
+        }
+        return (double) video.getFileSize() / video.getDuration() * RATE_FACTOR;
+    }
+
+    // Débit de la session en octets/s (0 = non limité)
+    double getRate() {
+        return session != null ? session.getBytesPerSecond() : 0;
+    }
+
+    // Réserve l'envoi de "bytes" octets ; retourne le délai (ns) à respecter avant le chunk suivant
+    long reserve(int bytes) {
+        long delay = session != null ? session.reserve(bytes) : 0;
+        if (GLOBAL_EGRESS != null) {
+            delay = Math.max(delay, GLOBAL_EGRESS.reserve(bytes));
+        }
+        return delay;
+    }
+}
@@ -0,0 +1,66 @@
+package com.videostreaming.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Tampons de chunk réutilisables, par classes de taille (puissances de deux) : avec des
+// chunks de taille variable, chaque envoi prend un tampon de la classe supérieure au lieu
+// d'en allouer un nouveau. Au-delà de la plus grande classe, le tampon n'est pas conservé.
+class BufferPool {
+    private final int minClass;
+    private final int maxPerClass;
+    private final List<ConcurrentLinkedQueue<ByteBuffer>> free;
+    private final AtomicInteger[] freeCounts;
+
+    BufferPool(int minSize, int maxSize, int maxPerClass) {
+        this.minClass = Integer.numberOfTrailingZeros(sizeClass(minSize));
+        int classes = Integer.numberOfTrailingZeros(sizeClass(maxSize)) - minClass + 1;
+        this.maxPerClass = maxPerClass;
+        this.free = new ArrayList<>(classes);
+        this.freeCounts = new AtomicInteger[classes];
+        for (int i = 0; i < classes; i++) {
+            free.add(new ConcurrentLinkedQueue<>());
+            freeCounts[i] = new AtomicInteger();
+        }
+    }
+
+    // Plus petite puissance de deux >= size
+    static int sizeClass(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    // Tampon (tableau accessible) d'au moins "size" octets, limite positionnée à size
+    ByteBuffer acquire(int size) {
+        int index = classIndex(size);
+        if (index < 0) {
+            return ByteBuffer.allocate(size);
+        }
+        ByteBuffer buffer = free.get(index).poll();
+        if (buffer != null) {
+            freeCounts[index].decrementAndGet();
+            return buffer.clear().limit(size);
+        }
+        return ByteBuffer.allocate(1 << (index + minClass)).limit(size);
+    }
+
+    void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        int index = classIndex(capacity);
+        if (index < 0 || sizeClass(capacity) != capacity) {
+            return;
+        }
+        if (freeCounts[index].incrementAndGet() > maxPerClass) {
+            freeCounts[index].decrementAndGet();
+            return;
+        }
+        free.get(index).add(buffer);
+    }
+
+    private int classIndex(int size) {
+        int index = Integer.numberOfTrailingZeros(sizeClass(Math.max(size, 1 << minClass))) - minClass;
+        return index < free.size() ? index : -1;
+    }
+}
@@ -0,0 +1,48 @@
+package com.videostreaming.server;
+
+import com.videostreaming.model.CatalogUpdate;
+
+import java.io.IOException;
+
+// Catalogue détenu par un client. Avec le protocole binaire v2, rien n'est envoyé s'il est
+// à jour, sinon un delta ou le catalogue complet ; les autres protocoles reçoivent toujours
+// la liste complète.
+final class CatalogSync {
+    private static final String SYNC_COMMAND = "CATALOG_SYNC:";
+
+    private final ControlVideoServer catalog;
+    private long clientVersion = -1;
+
+    CatalogSync(ControlVideoServer catalog) {
+        this.catalog = catalog;
+    }
+
+    // CATALOG_SYNC:<version> : le client annonce la version qu'il détient
+    boolean handleCommand(String command) {
+        if (!command.startsWith(SYNC_COMMAND)) {
+            return false;
+        }
+        try {
+            clientVersion = Long.parseLong(command.substring(SYNC_COMMAND.length()));
+        } catch (NumberFormatException e) {
+            clientVersion = -1;
+        }
+        return true;
+    }
+
+    // true si quelque chose a été envoyé
+    boolean send(ResponseEncoder out) throws IOException {
+        // Sans versions, le client ne peut appliquer un delta : catalogue complet à chaque fois
+        CatalogUpdate update = catalog.catalogSince(out.supportsCatalogUpdates() ? clientVersion : -1);
+        if (update == null) {
+            return false;
+        }
+        out.catalogUpdate(update);
+        clientVersion = update.version();
+        return true;
+    }
+
+    long getClientVersion() {
+        return clientVersion;
+    }
+}
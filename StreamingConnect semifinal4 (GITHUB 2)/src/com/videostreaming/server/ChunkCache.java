@@ -0,0 +1,155 @@
+package com.videostreaming.server;
+
+import com.videostreaming.conf.ConfigLoader;
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Cache de chunks partagé par toutes les sessions (protocole maison et HTTP), indexé par
+// (vidéo, numéro de chunk). Les chunks sont alignés sur la taille de chunk et stockés hors du tas
+// (ByteBuffer direct) dans la limite d'un budget mémoire, avec éviction LRU.
+// Quand plusieurs sessions demandent le même chunk absent, une seule le lit sur le disque,
+// les autres attendent le résultat.
+// Le budget doit rester sous -XX:MaxDirectMemorySize.
+class ChunkCache {
+    private record Key(String videoId, long chunkIndex) {
+    }
+
+    private static final class Entry {
+        final CompletableFuture<ByteBuffer> data = new CompletableFuture<>();
+        int size; // octets comptés dans le budget (0 tant que le chunk est en lecture)
+    }
+
+    private final int chunkSize;
+    private final long budget;
+    private final ServerMetrics metrics;
+    // Ordre d'accès : le premier élément est le moins récemment utilisé
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+
+    ChunkCache(int chunkSize, long budget, ServerMetrics metrics) {
+        this.chunkSize = chunkSize;
+        this.budget = budget;
+        this.metrics = metrics;
+    }
+
+    // null si le cache est désactivé (cache.enabled=false ou budget nul)
+    static ChunkCache fromConfig(ConfigLoader config, int chunkSize, ServerMetrics metrics) {
+        long budget = config.getLong("cache.memory", 256L * 1024 * 1024);
+        if (!Boolean.parseBoolean(config.getProperty("cache.enabled", "true")) || budget < chunkSize) {
+            return null;
+        }
+        System.out.println("Cache de chunks : " + budget / (1024 * 1024) + " Mo");
+        return new ChunkCache(chunkSize, budget, metrics);
+    }
+
+    // Longueur à envoyer depuis "position" : jusqu'à la fin du chunk qui la contient, de sorte
+    // qu'après un SEEK hors grille l'envoi se réaligne sur les chunks en cache
+    int chunkLength(long position, long fileSize) {
+        long chunkEnd = (position / chunkSize + 1) * chunkSize;
+        return (int) (Math.min(chunkEnd, fileSize) - position);
+    }
+
+    // Vue en lecture seule des octets [position, position + length) ; length ne doit pas
+    // dépasser chunkLength(position). Le chunk est lu depuis "file" s'il est absent.
+    ByteBuffer read(VideoMetadata video, FileChannel file, long position, int length) throws IOException {
+        long index = position / chunkSize;
+        ByteBuffer chunk = chunk(new Key(video.getId(), index), file, index * chunkSize,
+                (int) Math.min(chunkSize, video.getFileSize() - index * chunkSize));
+        int offset = (int) (position - index * chunkSize);
+        return chunk.slice(offset, length).asReadOnlyBuffer();
+    }
+
+    private ByteBuffer chunk(Key key, FileChannel file, long start, int length) throws IOException {
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            metrics.recordCacheHit();
+            try {
+                return entry.data.join();
+            } catch (CompletionException e) {
+                // La lecture du propriétaire a échoué : on lit nous-mêmes, sans cache
+                return load(file, start, length);
+            }
+        }
+
+        metrics.recordCacheMiss();
+        ByteBuffer data;
+        try {
+            data = load(file, start, length);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.data.completeExceptionally(e);
+            throw e;
+        }
+        entry.data.complete(data);
+        synchronized (this) {
+            if (entries.get(key) == entry) {
+                entry.size = data.capacity();
+                usedBytes += entry.size;
+                evict();
+            }
+        }
+        return data;
+    }
+
+    private static ByteBuffer load(FileChannel file, long start, int length) throws IOException {
+        ByteBuffer data = ByteBuffer.allocateDirect(length);
+        while (data.hasRemaining()) {
+            if (file.read(data, start + data.position()) < 0) {
+                throw new EOFException("Fichier tronqué pendant la lecture du chunk");
+            }
+        }
+        return data.flip();
+    }
+
+    // Retire les chunks les moins récemment utilisés jusqu'à repasser sous le budget ;
+    // les sessions qui en détiennent encore une vue continuent de l'envoyer
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (usedBytes > budget && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.size == 0) {
+                continue; // lecture en cours
+            }
+            usedBytes -= entry.size;
+            it.remove();
+            metrics.recordCacheEviction();
+        }
+    }
+
+    // Vidéo retirée ou modifiée sur le stockage
+    synchronized void invalidate(String videoId) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().videoId().equals(videoId)) {
+                usedBytes -= e.getValue().size;
+                it.remove();
+            }
+        }
+    }
+
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+}
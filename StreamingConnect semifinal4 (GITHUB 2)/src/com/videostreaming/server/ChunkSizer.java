@@ -0,0 +1,149 @@
+package com.videostreaming.server;
+
+import com.videostreaming.conf.ConfigLoader;
+
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+
+// Taille des chunks d'une session, ajustée au débit de livraison mesuré et au temps
+// d'aller-retour des CHUNK_ACK (ou des CREDIT, qui rendent plusieurs chunks à la fois) :
+// un chunk doit durer environ chunk.target.ms (au moins deux allers-retours) sur le lien
+// du client, dans les bornes [chunk.min, chunk.max].
+// Les tailles retenues sont des puissances de deux (classes du BufferPool) et ne changent
+// que d'un facteur deux à la fois.
+class ChunkSizer {
+    static ConfigLoader config = new ConfigLoader(Paths.get("conf/conf.properties"));
+    private static final int INITIAL = Integer.parseInt(config.getProperty("chuncksize"));
+    private static final boolean ADAPTIVE = Boolean.parseBoolean(config.getProperty("chunk.adaptive", "true"));
+    static final int MIN = floorPowerOfTwo(Math.min(config.getInt("chunk.min", 16 * 1024), INITIAL));
+    static final int MAX = BufferPool.sizeClass(Math.max(config.getInt("chunk.max", 1024 * 1024), INITIAL));
+    private static final long TARGET_NANOS = config.getLong("chunk.target.ms", 200) * 1_000_000;
+    private static final double SMOOTHING = 0.25; // poids d'un nouvel échantillon (moyenne mobile)
+    private static final int MAX_PENDING_ACKS = 64;
+    // Avec crédit, les chunks en attente sont bornés par la fenêtre accordée par le client
+    private static final int MAX_PENDING_CREDITED = 4096;
+
+    private record Sent(int bytes, long startedAt, long writtenAt) {
+    }
+
+    private int size = INITIAL;
+    private double throughput;  // octets/s (0 = pas encore mesuré)
+    private double rttNanos;    // envoi terminé -> CHUNK_ACK (0 = pas encore mesuré)
+    private long lastAckAt;
+    private boolean ackless;    // le client n'envoie pas de CHUNK_ACK
+    private boolean credited;   // le client rend du crédit (CREDIT) au lieu d'accuser chaque chunk
+    private long acknowledged;  // octets rendus pas encore attribués à un chunk en attente
+    // Chunks écrits en attente de leur CHUNK_ACK, dans l'ordre d'envoi
+    private final ArrayDeque<Sent> pending = new ArrayDeque<>();
+
+    // Grille des chunks partagés (cache, lecteurs partagés) : la plus grande taille envoyée
+    static int gridSize() {
+        return ADAPTIVE ? MAX : INITIAL;
+    }
+
+    synchronized int next() {
+        return size;
+    }
+
+    // Chunk entièrement écrit sur le socket (début et fin de l'écriture, System.nanoTime())
+    synchronized void chunkWritten(int bytes, long startedAt, long writtenAt) {
+        if (!ADAPTIVE) {
+            return;
+        }
+        if (pending.size() == (credited ? MAX_PENDING_CREDITED : MAX_PENDING_ACKS)) {
+            // Client sans CHUNK_ACK : seule la durée d'écriture (contre-pression TCP) est mesurable
+            pending.clear();
+            acknowledged = 0;
+            ackless = !credited;
+        }
+        pending.add(new Sent(bytes, startedAt, writtenAt));
+        long elapsed = writtenAt - startedAt;
+        // En dessous d'une milliseconde le chunk a tenu dans le tampon du socket : pas significatif
+        if (ackless && elapsed > 1_000_000) {
+            throughput(bytes, elapsed);
+            resize();
+        }
+    }
+
+    // CHUNK_ACK reçu pour le plus ancien chunk en attente
+    synchronized void ackReceived(long receivedAt) {
+        Sent oldest = pending.peek();
+        if (oldest != null) {
+            acknowledge(oldest.bytes(), receivedAt);
+        }
+    }
+
+    // CREDIT reçu : octets des chunks consommés par le client, dans l'ordre d'envoi
+    synchronized void creditReceived(long bytes, long receivedAt) {
+        credited = true;
+        acknowledge(bytes, receivedAt);
+    }
+
+    private void acknowledge(long bytes, long receivedAt) {
+        if (!ADAPTIVE) {
+            return;
+        }
+        acknowledged += bytes;
+        Sent first = null;
+        Sent last = null;
+        long delivered = 0;
+        while (!pending.isEmpty() && pending.peek().bytes() <= acknowledged) {
+            Sent sent = pending.poll();
+            acknowledged -= sent.bytes();
+            delivered += sent.bytes();
+            if (first == null) {
+                first = sent;
+            }
+            last = sent;
+        }
+        if (last == null) {
+            return;
+        }
+        // Livraison des chunks : depuis l'écriture du premier, ou depuis l'accusé précédent si
+        // les chunks se suivent (il attendait alors derrière le précédent)
+        long previousAck = lastAckAt;
+        long deliveryStart = Math.max(first.startedAt(), previousAck);
+        lastAckAt = receivedAt;
+        ackless = false;
+        if (!throughput(delivered, receivedAt - deliveryStart)) {
+            return;
+        }
+        // Aller-retour : délai de l'accusé, hors attente derrière le chunk précédent et hors
+        // temps de transfert du dernier chunk lui-même
+        double rtt = Math.max(0, receivedAt - Math.max(last.writtenAt(), previousAck) - last.bytes() * 1e9 / throughput);
+        rttNanos = rttNanos == 0 ? rtt : rttNanos + SMOOTHING * (rtt - rttNanos);
+        resize();
+    }
+
+    private boolean throughput(long bytes, long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return false;
+        }
+        double rate = bytes * 1e9 / elapsedNanos;
+        throughput = throughput == 0 ? rate : throughput + SMOOTHING * (rate - throughput);
+        return true;
+    }
+
+    private void resize() {
+        double window = Math.max(TARGET_NANOS, 2 * rttNanos) / 1e9;
+        long wanted = Math.max(MIN, Math.min(MAX, (long) (throughput * window)));
+        int target = floorPowerOfTwo((int) wanted);
+        if (target > size) {
+            size = Math.min(target, floorPowerOfTwo(size) * 2);
+        } else if (target < size) {
+            size = Math.max(target, BufferPool.sizeClass(size) / 2);
+        }
+    }
+
+    synchronized double getThroughput() {
+        return throughput;
+    }
+
+    synchronized double getRttMillis() {
+        return rttNanos / 1_000_000.0;
+    }
+
+    private static int floorPowerOfTwo(int value) {
+        return Integer.highestOneBit(Math.max(1, value));
+    }
+}
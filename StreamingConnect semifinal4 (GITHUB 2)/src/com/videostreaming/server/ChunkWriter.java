@@ -0,0 +1,42 @@
+package com.videostreaming.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+
+// Envoi d'un VIDEO_CHUNK sans copie du contenu en mémoire utilisateur : l'en-tête propre
+// au protocole est écrit sur le canal, puis le contenu part directement du FileChannel
+// vers le socket via transferTo (sendfile).
+final class ChunkWriter {
+
+    private ChunkWriter() {
+    }
+
+    // Mode bloquant
+    static void writeChunk(ResponseEncoder out, SocketChannel channel, FileChannel file,
+                           long position, int length, double progress) throws IOException {
+        writeFully(channel, out.chunkHeader(length, progress));
+        new FileRegion(file, position, length).writeFully(channel);
+        ByteBuffer trailer = out.chunkTrailer(progress);
+        if (trailer != null) {
+            writeFully(channel, trailer);
+        }
+    }
+
+    // Chunk servi depuis le cache (tampon hors tas)
+    static void writeChunk(ResponseEncoder out, SocketChannel channel, ByteBuffer data, double progress) throws IOException {
+        writeFully(channel, out.chunkHeader(data.remaining(), progress));
+        writeFully(channel, data);
+        ByteBuffer trailer = out.chunkTrailer(progress);
+        if (trailer != null) {
+            writeFully(channel, trailer);
+        }
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
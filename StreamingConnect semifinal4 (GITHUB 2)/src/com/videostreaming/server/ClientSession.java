@@ -0,0 +1,66 @@
+package com.videostreaming.server;
+
+import com.videostreaming.model.Playlist;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Session d'un client, identifiée par un numéro attribué par le serveur : plusieurs clients
+// derrière la même adresse (NAT, tests de charge) ont chacun leur état et leurs playlists.
+public class ClientSession {
+    private final long id;
+    private final String clientAddress;
+    private volatile ClientState state;  // null tant qu'aucune vidéo n'a été demandée
+    // Modifiées par le thread de la connexion, lues éventuellement ailleurs
+    private final List<Playlist> playlists = new CopyOnWriteArrayList<>();
+    // Conservé d'une vidéo à l'autre : le lien du client ne change pas
+    private final ChunkSizer chunkSizer = new ChunkSizer();
+    private final FlowCredit flowCredit = new FlowCredit();
+
+    ClientSession(long id, String clientAddress) {
+        this.id = id;
+        this.clientAddress = clientAddress;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getClientAddress() {
+        return clientAddress;
+    }
+
+    public ClientState getState() {
+        return state;
+    }
+
+    public void setState(ClientState state) {
+        this.state = state;
+    }
+
+    // Arrête la vidéo en cours ; la suivante repart d'un état neuf
+    public void resetState() {
+        ClientState current = state;
+        if (current != null) {
+            current.stop();
+            state = new ClientState(0, 0);
+        }
+    }
+
+    ChunkSizer getChunkSizer() {
+        return chunkSizer;
+    }
+
+    FlowCredit getFlowCredit() {
+        return flowCredit;
+    }
+
+    public List<Playlist> getPlaylists() {
+        return playlists;
+    }
+
+    @Override
+    public String toString() {
+        return clientAddress + " #" + id;
+    }
+}
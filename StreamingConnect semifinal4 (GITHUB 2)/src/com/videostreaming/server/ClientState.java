@@ -1,60 +1,116 @@
 package com.videostreaming.server;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// État de lecture d'une session, sans verrou : les indicateurs de lecture / pause et le nombre
+// d'octets envoyés tiennent dans un seul long, lu et modifié par CAS (VarHandle).
+// Le thread d'envoi (un appel par chunk) et les commandes PAUSE / RESUME / STOP ne se
+// bloquent jamais mutuellement, et snapshot() donne une vue cohérente en une seule lecture.
 public class ClientState {
-    private volatile long bytesSent;          // Nombre total de bytes envoyés
-    private volatile double currentTime;      // Temps actuel de la vidéo en secondes
+    private static final long PAUSED = 1L << 63;               // Indicateur de pause
+    private static final long PLAYING = 1L << 62;              // Indicateur de lecture en cours
+    private static final long BYTES_MASK = PLAYING - 1;        // Nombre total de bytes envoyés
+
+    private static final VarHandle WORD;
+
+    static {
+        try {
+            WORD = MethodHandles.lookup().findVarHandle(ClientState.class, "word", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long word;               // indicateurs | octets envoyés
     private final long totalFileSize;         // Taille totale de la vidéo
     private final double totalDuration;       // Durée totale de la vidéo
-    private volatile boolean isPaused;        // Indicateur de pause
-    private volatile boolean isPlaying;       // Indicateur de lecture en cours
+
+    // Vue cohérente de l'état à un instant donné
+    public record Snapshot(long bytesSent, double currentTime, boolean paused, boolean playing, boolean complete) {
+    }
 
     public ClientState(long totalFileSize, double totalDuration) {
-        this.bytesSent = 0;
-        this.currentTime = 0.0;
+        this.word = 0;
         this.totalFileSize = totalFileSize;
         this.totalDuration = totalDuration;
-        this.isPaused = false;
-        this.isPlaying = false;
     }
 
-    public synchronized void updateBytesSent(int bytes) {
-        if (!isPaused) {  // Ne mettez à jour les bytes envoyés que si la vidéo est en lecture
-            this.bytesSent += bytes;
-            this.currentTime = ((double) this.bytesSent / this.totalFileSize) * this.totalDuration;
+    // Ne met à jour les bytes envoyés que si la vidéo est en lecture ; renvoie le nouveau total
+    public long updateBytesSent(int bytes) {
+        long current = word;
+        while ((current & PAUSED) == 0) {
+            long next = (current & ~BYTES_MASK) | Math.min((current & BYTES_MASK) + bytes, BYTES_MASK);
+            long witness = (long) WORD.compareAndExchange(this, current, next);
+            if (witness == current) {
+                return next & BYTES_MASK;
+            }
+            current = witness;
         }
+        return current & BYTES_MASK;
+    }
+
+    // Repositionnement (SEEK) : la progression repart de l'octet demandé
+    public void seekTo(long position) {
+        long bytes = Math.max(0, Math.min(position, BYTES_MASK));
+        long current;
+        do {
+            current = word;
+        } while (!WORD.compareAndSet(this, current, (current & ~BYTES_MASK) | bytes));
+    }
+
+    public void pause() {
+        setFlags(PAUSED);  // Stoppe la lecture lorsqu'on met en pause
+    }
+
+    public void resume() {
+        setFlags(PLAYING); // Reprend la lecture lorsqu'on clique sur Reprendre
+    }
+
+    public void stop() {
+        // Arrêt complet de la vidéo (l'indicateur de pause est conservé)
+        long current;
+        do {
+            current = word;
+        } while (!WORD.compareAndSet(this, current, current & ~PLAYING));
     }
 
-    public synchronized void pause() {
-        this.isPaused = true;
-        this.isPlaying = false;  // Stoppe la lecture lorsqu'on met en pause
+    // Remplace les deux indicateurs, sans toucher au nombre d'octets envoyés
+    private void setFlags(long flags) {
+        long current;
+        do {
+            current = word;
+        } while (!WORD.compareAndSet(this, current, (current & BYTES_MASK) | flags));
     }
 
-    public synchronized void resume() {
-        this.isPaused = false;
-        this.isPlaying = true;   // Reprend la lecture lorsqu'on clique sur Reprendre
+    public Snapshot snapshot() {
+        long current = word;
+        long bytes = current & BYTES_MASK;
+        return new Snapshot(bytes, currentTime(bytes), (current & PAUSED) != 0, (current & PLAYING) != 0,
+                bytes >= totalFileSize);
     }
 
-    public synchronized void stop() {
-        this.isPlaying = false;  // Arrêt complet de la vidéo
+    public boolean isPaused() {
+        return (word & PAUSED) != 0;
     }
 
-    public synchronized boolean isPaused() {
-        return isPaused;
+    public boolean isPlaying() {
+        return (word & PLAYING) != 0;
     }
 
-    public synchronized boolean isPlaying() {
-        return isPlaying;
+    public long getBytesSent() {
+        return word & BYTES_MASK;
     }
 
-    public synchronized long getBytesSent() {
-        return bytesSent;
+    public double getCurrentTime() {
+        return currentTime(getBytesSent());
     }
 
-    public synchronized double getCurrentTime() {
-        return currentTime;
+    public boolean isComplete() {
+        return getBytesSent() >= totalFileSize;
     }
 
-    public synchronized boolean isComplete() {
-        return bytesSent >= totalFileSize;
+    private double currentTime(long bytes) {
+        return totalFileSize > 0 ? ((double) bytes / totalFileSize) * totalDuration : 0.0;
     }
 }
@@ -0,0 +1,167 @@
+package com.videostreaming.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+// Comparaison de ClientState (mot d'état unique modifié par CAS) avec l'ancienne version à
+// méthodes synchronized, sous trafic de contrôle concurrent : N threads d'envoi font le travail
+// d'un chunk (isPaused, mise à jour de la progression, lecture du total) pendant qu'un thread
+// alterne PAUSE / RESUME sans arrêt sur le même état.
+//   java -cp <classes> com.videostreaming.server.ClientStateBenchmark [threads] [secondes] [tours]
+// Chaque tour mesure les deux versions l'une après l'autre ; le premier sert de chauffe.
+final class ClientStateBenchmark {
+    private static final long FILE_SIZE = Long.MAX_VALUE / 4;
+    private static final int CHUNK = 64 * 1024;
+
+    private ClientStateBenchmark() {
+    }
+
+    // Opérations faites par le serveur pour un chunk, et par une commande de contrôle
+    private interface Target {
+        long chunk();
+
+        void toggle();
+    }
+
+    // ClientState tel qu'il était avant le mot d'état (un seul moniteur pour tout)
+    private static final class SynchronizedClientState {
+        private volatile long bytesSent;
+        private volatile double currentTime;
+        private final long totalFileSize;
+        private final double totalDuration;
+        private volatile boolean isPaused;
+        private volatile boolean isPlaying;
+
+        SynchronizedClientState(long totalFileSize, double totalDuration) {
+            this.totalFileSize = totalFileSize;
+            this.totalDuration = totalDuration;
+        }
+
+        synchronized void updateBytesSent(int bytes) {
+            if (!isPaused) {
+                this.bytesSent += bytes;
+                this.currentTime = ((double) this.bytesSent / this.totalFileSize) * this.totalDuration;
+            }
+        }
+
+        synchronized void pause() {
+            this.isPaused = true;
+            this.isPlaying = false;
+        }
+
+        synchronized void resume() {
+            this.isPaused = false;
+            this.isPlaying = true;
+        }
+
+        synchronized boolean isPaused() {
+            return isPaused;
+        }
+
+        synchronized long getBytesSent() {
+            return bytesSent;
+        }
+    }
+
+    private static Target synchronizedTarget() {
+        SynchronizedClientState state = new SynchronizedClientState(FILE_SIZE, 3600);
+        state.resume();
+        return new Target() {
+            public long chunk() {
+                if (state.isPaused()) {
+                    return 0;
+                }
+                state.updateBytesSent(CHUNK);
+                return state.getBytesSent();
+            }
+
+            public void toggle() {
+                state.pause();
+                state.resume();
+            }
+        };
+    }
+
+    private static Target packedTarget() {
+        ClientState state = new ClientState(FILE_SIZE, 3600);
+        state.resume();
+        return new Target() {
+            public long chunk() {
+                if (state.isPaused()) {
+                    return 0;
+                }
+                return state.updateBytesSent(CHUNK);
+            }
+
+            public void toggle() {
+                state.pause();
+                state.resume();
+            }
+        };
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        long millis = (args.length > 1 ? Long.parseLong(args[1]) : 2) * 1000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        System.out.println(threads + " threads d'envoi, 1 thread PAUSE/RESUME, " + millis + " ms par mesure, "
+                + Runtime.getRuntime().availableProcessors() + " processeur(s)");
+        for (int round = 0; round < rounds; round++) {
+            String label = round == 0 ? "chauffe" : "tour " + round;
+            report(label, "synchronized", run(synchronizedTarget(), threads, millis), millis);
+            report(label, "mot d'état  ", run(packedTarget(), threads, millis), millis);
+        }
+    }
+
+    private static void report(String label, String name, long[] counts, long millis) {
+        System.out.printf("%-8s %s : %,12d chunks/s, %,12d PAUSE/RESUME par s%n",
+                label, name, counts[0] * 1000 / millis, counts[1] * 1000 / millis);
+    }
+
+    // { chunks traités, paires PAUSE/RESUME }
+    private static long[] run(Target target, int threads, long millis) throws InterruptedException {
+        LongAdder chunks = new LongAdder();
+        LongAdder toggles = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Thread(() -> {
+                await(start);
+                long sink = 0; // résultat consommé : le JIT ne peut pas supprimer les appels
+                long count = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    sink += target.chunk();
+                    count++;
+                }
+                chunks.add(count + (sink == 42 ? 1 : 0));
+            }, "chunk-" + i));
+        }
+        workers.add(new Thread(() -> {
+            await(start);
+            long count = 0;
+            while (System.nanoTime() < deadline[0]) {
+                target.toggle();
+                count++;
+            }
+            toggles.add(count);
+        }, "control"));
+        workers.forEach(Thread::start);
+        deadline[0] = System.nanoTime() + millis * 1_000_000;
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new long[]{chunks.sum(), toggles.sum()};
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.videostreaming.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Décodage incrémental des commandes (mode NIO) : null tant qu'une commande n'est pas complète,
+// la position du tampon n'avance que sur ce qui a été entièrement décodé
+interface CommandDecoder {
+    String decode(ByteBuffer in) throws IOException;
+}
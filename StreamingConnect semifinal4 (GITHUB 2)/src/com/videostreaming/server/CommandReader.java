@@ -0,0 +1,12 @@
+package com.videostreaming.server;
+
+import java.io.IOException;
+
+// Lecture bloquante des commandes du client
+interface CommandReader {
+    // null en fin de flux
+    String readCommand() throws IOException;
+
+    // Commande déjà arrivée, sans bloquer si rien n'est disponible
+    String pollCommand() throws IOException;
+}
@@ -0,0 +1,115 @@
+package com.videostreaming.server;
+
+import com.videostreaming.conf.ConfigLoader;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Exécute les connexions clientes sur des threads virtuels (par défaut) ou sur un pool
+// de threads plateforme borné, avec une limite globale de connexions simultanées.
+public class ConnectionExecutor {
+    public static final String VIRTUAL = "virtual";
+    public static final String POOL = "pool";
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConnections;
+    private final ServerMetrics metrics;
+
+    public ConnectionExecutor(String type, int poolSize, int maxConnections, ServerMetrics metrics) {
+        this.maxConnections = maxConnections;
+        this.permits = new Semaphore(maxConnections);
+        this.metrics = metrics;
+
+        if (POOL.equalsIgnoreCase(type)) {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory factory = r -> new Thread(r, "client-" + counter.incrementAndGet());
+            // Les connexions au-delà de poolSize attendent dans la file : l'attente se voit
+            // dans la latence "premier octet" des métriques
+            this.executor = Executors.newFixedThreadPool(poolSize, factory);
+        } else {
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("client-", 1).factory());
+        }
+    }
+
+    public static ConnectionExecutor fromConfig(ConfigLoader config, ServerMetrics metrics) {
+        String type = config.getProperty("server.executor", VIRTUAL);
+        int poolSize = config.getInt("server.pool.size", 256);
+        int maxConnections = config.getInt("server.max.connections", 10000);
+        System.out.println("Exécuteur de connexions : " + type + " (limite " + maxConnections + " connexions)");
+        return new ConnectionExecutor(type, poolSize, maxConnections, metrics);
+    }
+
+    // Retourne false (et ferme le socket) si la limite de connexions est atteinte
+    public boolean submit(Socket clientSocket, Runnable handler) {
+        metrics.connectionAccepted();
+        if (!permits.tryAcquire()) {
+            System.err.println("Limite de " + maxConnections + " connexions atteinte, connexion refusée : " + clientSocket.getInetAddress());
+            metrics.connectionRejected();
+            closeQuietly(clientSocket);
+            return false;
+        }
+
+        try {
+            executor.execute(() -> {
+                metrics.connectionOpened();
+                try {
+                    handler.run();
+                } finally {
+                    metrics.connectionClosed();
+                    permits.release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            metrics.connectionRejected();
+            closeQuietly(clientSocket);
+            return false;
+        }
+    }
+
+    // Connexion servie hors de l'exécuteur (session NIO) mais comptée dans la même limite :
+    // false si elle est atteinte, sinon la place est rendue par release()
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
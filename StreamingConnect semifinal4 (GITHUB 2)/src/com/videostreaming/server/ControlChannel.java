@@ -0,0 +1,144 @@
+package com.videostreaming.server;
+
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+// Côté lecture d'une connexion bloquante : un thread dédié lit les commandes en continu,
+// pendant que le thread de la connexion envoie les chunks.
+// PAUSE / RESUME / STOP sont appliqués à l'état de la session dès leur réception, et le
+// thread d'envoi est réveillé (attente de cadence ou pause) pour y répondre aussitôt.
+class ControlChannel implements CommandReader {
+    private record Command(String text, long receivedAt) {
+    }
+
+    private static final Command END = new Command(null, 0);
+
+    private final CommandReader reader;
+    private final ClientSession session;
+    private final LinkedBlockingQueue<Command> commands = new LinkedBlockingQueue<>();
+    private volatile Thread writer;
+    private long lastReceivedAt;
+
+    ControlChannel(CommandReader reader, ClientSession session) {
+        this.reader = reader;
+        this.session = session;
+    }
+
+    // Démarre la lecture ; "writer" est le thread qui envoie les réponses et les chunks
+    void start() {
+        writer = Thread.currentThread();
+        Thread.ofVirtual().name("control-" + session.getId()).start(this::readLoop);
+    }
+
+    private void readLoop() {
+        try {
+            String command;
+            while ((command = reader.readCommand()) != null) {
+                if ("CHUNK_ACK".equals(command)) {
+                    // Accusé de réception : mesure du débit de livraison et de l'aller-retour
+                    session.getChunkSizer().ackReceived(System.nanoTime());
+                    continue;
+                }
+                if (command.startsWith("CREDIT:")) {
+                    // Crédit rendu par le client : l'envoi suspendu faute de crédit reprend
+                    long bytes = FlowCredit.parseGrant(command);
+                    if (bytes < 0) {
+                        continue;
+                    }
+                    session.getFlowCredit().grant(bytes);
+                    session.getChunkSizer().creditReceived(bytes, System.nanoTime());
+                    LockSupport.unpark(writer);
+                    continue;
+                }
+                apply(command);
+                commands.add(new Command(command, System.nanoTime()));
+                LockSupport.unpark(writer);
+                if ("EXIT".equals(command)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // Socket fermé par le thread d'envoi ou par le client
+        } finally {
+            commands.add(END);
+            LockSupport.unpark(writer);
+        }
+    }
+
+    // Effet immédiat sur l'état de lecture ; la réponse est envoyée par le thread d'envoi
+    private void apply(String command) {
+        ClientState state = session.getState();
+        if (state == null) {
+            return;
+        }
+        switch (command) {
+            case "PAUSE" -> state.pause();
+            case "RESUME" -> state.resume();
+            case "STOP" -> state.stop();
+            default -> {
+            }
+        }
+    }
+
+    // null quand la connexion est fermée
+    @Override
+    public String readCommand() throws IOException {
+        try {
+            return take(commands.take());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Lecture des commandes interrompue", e);
+        }
+    }
+
+    @Override
+    public String pollCommand() {
+        Command command = commands.poll();
+        return command != null ? take(command) : null;
+    }
+
+    private String take(Command command) {
+        if (command == END) {
+            commands.add(END); // les appels suivants voient aussi la fermeture
+            return null;
+        }
+        lastReceivedAt = command.receivedAt();
+        return command.text();
+    }
+
+    // Attente de cadence, écourtée dès qu'une commande arrive
+    void await(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0 && commands.isEmpty()) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    // Attente de crédit du client, écourtée dès qu'une commande arrive
+    void awaitCredit(FlowCredit credit) {
+        while (!credit.available() && commands.isEmpty()) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Fin de flux reçue et toutes les commandes précédentes lues
+    boolean isClosed() {
+        return commands.peek() == END;
+    }
+
+    // Temps écoulé depuis la réception de la dernière commande lue (latence de traitement)
+    long lastCommandLatencyNanos() {
+        return System.nanoTime() - lastReceivedAt;
+    }
+}
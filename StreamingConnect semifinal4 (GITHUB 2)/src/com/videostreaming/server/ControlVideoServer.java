@@ -1,28 +1,216 @@
 package com.videostreaming.server;
 
 import com.videostreaming.conf.ConfigLoader;
+import com.videostreaming.model.CatalogUpdate;
 import com.videostreaming.model.VideoMetadata;
+import com.videostreaming.storage.RemoteVideoStorage;
+import com.videostreaming.storage.StorageChangeListener;
 import com.videostreaming.storage.VideoStorage;
 import com.videostreaming.storage.VideoStorageServer;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.*;
 
 public class ControlVideoServer {
     static ConfigLoader config = new ConfigLoader(Paths.get("conf/conf.properties"));
     private List<VideoStorageServer> childServers;
 
-    public ControlVideoServer() {
+    // Index id -> vidéo logique (et ses réplicas) et catalogue immuable partagé entre toutes
+    // les requêtes, reconstruits uniquement quand un stockage change
+    private volatile Map<String, ReplicaSet> videoIndex = Map.of();
+    private volatile List<VideoMetadata> catalogSnapshot = List.of();
+    private final ReplicaSelector replicaSelector;
+    private final List<StorageChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Version du catalogue, incrémentée à chaque changement. Elle part de l'heure de démarrage
+    // pour qu'une version détenue avant un redémarrage du serveur soit vue comme trop ancienne.
+    private volatile long catalogVersion = System.currentTimeMillis();
+    // Derniers deltas (du plus ancien au plus récent), pour répondre aux clients peu en retard
+    private final ArrayDeque<CatalogUpdate> catalogHistory = new ArrayDeque<>();
+    private final int catalogHistorySize = config.getInt("catalog.history.size", 64);
+
+    public ControlVideoServer(ServerMetrics metrics) {
+        replicaSelector = ReplicaSelector.fromConfig(config, metrics);
         childServers = new ArrayList<>();
-        // Initialiser les serveurs filles sur différents répertoires
-        childServers.add(new VideoStorage(Paths.get(config.getProperty("storage1"))));
-        childServers.add(new VideoStorage(Paths.get(config.getProperty("storage2"))));
+        // Initialiser les serveurs filles sur différents répertoires (laissés vides : aucun stockage local)
+        String cacheFile = config.getProperty("storage.metadata.cache", VideoStorage.DEFAULT_CACHE_FILE);
+        for (String key : List.of("storage1", "storage2")) {
+            String directory = config.getProperty(key, "").trim();
+            if (!directory.isEmpty()) {
+                childServers.add(new VideoStorage(Paths.get(directory), cacheFile));
+            }
+        }
+        // Nœuds de stockage distants (StorageNode), "hôte:port" séparés par des virgules
+        int nodeConnections = config.getInt("storage.node.connections", 4);
+        long nodeTimeout = config.getLong("storage.node.timeout", 10) * 1000;
+        for (String address : config.getProperty("storage.nodes", "").split(",")) {
+            if (!address.isBlank()) {
+                childServers.add(RemoteVideoStorage.connect(address.trim(), nodeConnections, nodeTimeout));
+            }
+        }
+
+        rebuildIndex();
     }
 
+    // Suivi des changements des stockages, une fois l'objet entièrement construit
+    public void start() {
+        for (VideoStorageServer storage : childServers) {
+            storage.addChangeListener(this::onStorageChanged);
+        }
+        startPeriodicRescan(config.getInt("storage.rescan.interval", 0));
+    }
+
+    // Liste partagée et non modifiable : ne pas la copier à chaque requête
     public List<VideoMetadata> getAllAvailableVideos() {
-        return childServers.stream()
-                .flatMap(server -> server.getAvailableVideos().stream())
-                .collect(Collectors.toList());
+        return catalogSnapshot;
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    // Ce qu'il faut envoyer à un client qui détient clientVersion (-1 = rien) :
+    // null s'il est à jour, un delta si l'historique le couvre, sinon le catalogue complet
+    public CatalogUpdate catalogSince(long clientVersion) {
+        if (clientVersion == catalogVersion) {
+            return null;
+        }
+        synchronized (this) {
+            long version = catalogVersion;
+            if (clientVersion == version) {
+                return null;
+            }
+            CatalogUpdate oldest = catalogHistory.peekFirst();
+            if (clientVersion < 0 || clientVersion > version || oldest == null || clientVersion < oldest.fromVersion()) {
+                return CatalogUpdate.full(version, catalogSnapshot);
+            }
+
+            Map<String, VideoMetadata> added = new LinkedHashMap<>();
+            Set<String> removed = new LinkedHashSet<>();
+            for (CatalogUpdate delta : catalogHistory) {
+                if (delta.fromVersion() < clientVersion) {
+                    continue;
+                }
+                for (String id : delta.removed()) {
+                    added.remove(id);
+                    removed.add(id);
+                }
+                delta.added().forEach(video -> added.put(video.getId(), video));
+            }
+            if (added.size() + removed.size() >= catalogSnapshot.size()) {
+                return CatalogUpdate.full(version, catalogSnapshot);
+            }
+            return CatalogUpdate.delta(clientVersion, version, new ArrayList<>(added.values()), new ArrayList<>(removed));
+        }
+    }
+
+    public VideoMetadata findVideo(String videoId) {
+        ReplicaSet set = videoIndex.get(videoId);
+        return set != null ? set.video() : null;
+    }
+
+    // Contenu d'une vidéo du catalogue, lu sur ses réplicas (fichiers locaux ou nœuds distants)
+    public FileChannel openVideo(VideoMetadata video) throws IOException {
+        ReplicaSet set = videoIndex.get(video.getId());
+        if (set == null) {
+            throw new IOException("Vidéo retirée du catalogue : " + video.getTitle());
+        }
+        return replicaSelector.open(set);
+    }
+
+    // Notifié des vidéos logiques ajoutées / retirées ; une vidéo dont un réplica a changé est
+    // signalée comme retirée (son contenu peut venir d'un autre fichier) sans quitter le catalogue
+    public void addStorageChangeListener(StorageChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void rescanStorages() {
+        childServers.forEach(VideoStorageServer::rescan);
+    }
+
+    private synchronized void onStorageChanged(VideoStorageServer storage, List<VideoMetadata> addedReplicas,
+                                               List<VideoMetadata> removedReplicas) {
+        Map<String, ReplicaSet> previous = videoIndex;
+        rebuildIndex();
+        Map<String, ReplicaSet> current = videoIndex;
+
+        List<VideoMetadata> added = new ArrayList<>();
+        List<VideoMetadata> removed = new ArrayList<>();
+        List<VideoMetadata> changed = new ArrayList<>();
+        current.forEach((id, set) -> {
+            ReplicaSet before = previous.get(id);
+            if (before == null) {
+                added.add(set.video());
+            } else if (!before.sameReplicas(set)) {
+                changed.add(set.video());
+            }
+        });
+        previous.forEach((id, set) -> {
+            if (!current.containsKey(id)) {
+                removed.add(set.video());
+            }
+        });
+        if (!added.isEmpty() || !removed.isEmpty() || !changed.isEmpty()) {
+            List<VideoMetadata> invalidated = new ArrayList<>(removed);
+            invalidated.addAll(changed);
+            listeners.forEach(listener -> listener.videosChanged(storage, added, invalidated));
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            // Réplica ajouté ou retiré d'une vidéo déjà listée : le catalogue ne change pas
+            return;
+        }
+
+        long version = catalogVersion + 1;
+        List<String> removedIds = removed.stream().map(VideoMetadata::getId).collect(Collectors.toList());
+        catalogHistory.addLast(CatalogUpdate.delta(catalogVersion, version, added, removedIds));
+        while (catalogHistory.size() > catalogHistorySize) {
+            catalogHistory.removeFirst();
+        }
+        catalogVersion = version;
+        System.out.println("Catalogue v" + version + " : +" + added.size() + " / -" + removed.size() + " vidéos");
+    }
+
+    // Regroupe les fichiers de tous les stockages en vidéos logiques ; une vidéo déjà listée
+    // garde la même instance de métadonnées
+    private synchronized void rebuildIndex() {
+        Map<String, List<ReplicaSet.Replica>> groups = new LinkedHashMap<>();
+        for (VideoStorageServer storage : childServers) {
+            for (VideoMetadata video : storage.getAvailableVideos()) {
+                groups.computeIfAbsent(ReplicaSet.key(video), key -> new ArrayList<>())
+                        .add(new ReplicaSet.Replica(storage, video));
+            }
+        }
+        Map<String, ReplicaSet> previous = videoIndex;
+        Map<String, ReplicaSet> index = new HashMap<>();
+        List<VideoMetadata> snapshot = new ArrayList<>(groups.size());
+        groups.forEach((key, replicas) -> {
+            String id = ReplicaSet.logicalId(key);
+            ReplicaSet before = previous.get(id);
+            VideoMetadata video = before != null ? before.video() : ReplicaSet.logicalVideo(id, replicas.get(0).video());
+            index.put(id, new ReplicaSet(video, List.copyOf(replicas)));
+            snapshot.add(video);
+        });
+        videoIndex = index;
+        catalogSnapshot = Collections.unmodifiableList(snapshot);
+    }
+
+    // Relecture périodique des répertoires de stockage (intervalle en secondes, 0 = désactivée)
+    private void startPeriodicRescan(int intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "storage-rescan");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::rescanStorages, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,253 @@
+package com.videostreaming.server;
+
+import com.videostreaming.conf.ConfigLoader;
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Lecteurs partagés (premières) : les sessions qui regardent la même vidéo à des positions
+// proches sont rattachées à un même lecteur, qui lit chaque chunk une seule fois et le garde
+// dans une fenêtre glissante de "fanout.window" chunks.
+// Une session distancée de plus d'une fenêtre (pause, client lent) ou qui saute hors de la
+// fenêtre (SEEK) est détachée et rattachée au lecteur le plus proche, ou à un nouveau lecteur
+// dont elle devient la tête.
+// Chaque session garde sa propre cadence : la fenêtre avance au rythme de la plus rapide.
+class FanOutReaders {
+    private final int chunkSize;
+    private final int window;
+    private final ControlVideoServer storage;
+    private final ChunkCache cache;
+    private final ServerMetrics metrics;
+    private final Map<String, List<SharedReader>> readers = new HashMap<>();
+
+    FanOutReaders(int chunkSize, int window, ControlVideoServer storage, ChunkCache cache, ServerMetrics metrics) {
+        this.chunkSize = chunkSize;
+        this.window = window;
+        this.storage = storage;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    // null si désactivé (fanout.enabled=false ou fenêtre nulle)
+    static FanOutReaders fromConfig(ConfigLoader config, int chunkSize, ControlVideoServer storage,
+                                    ChunkCache cache, ServerMetrics metrics) {
+        int window = config.getInt("fanout.window", 8);
+        if (!Boolean.parseBoolean(config.getProperty("fanout.enabled", "true")) || window <= 0) {
+            return null;
+        }
+        return new FanOutReaders(chunkSize, window, storage, cache, metrics);
+    }
+
+    // Abonnement d'une session à une vidéo ; le lecteur est choisi à la première lecture
+    Subscription subscribe(VideoMetadata video) {
+        return new Subscription(video);
+    }
+
+    // Même découpage que le cache : jusqu'à la fin du chunk qui contient "position"
+    int chunkLength(long position, long fileSize) {
+        long chunkEnd = (position / chunkSize + 1) * chunkSize;
+        return (int) (Math.min(chunkEnd, fileSize) - position);
+    }
+
+    // Ouverture du fichier (parfois un aller-retour vers un nœud de stockage) et fermeture se
+    // font hors du verrou, qui ne protège que les listes de lecteurs
+    private SharedReader attach(VideoMetadata video, long index) throws IOException {
+        synchronized (this) {
+            SharedReader nearest = nearest(video, index);
+            if (nearest != null) {
+                nearest.subscribers++;
+                return nearest;
+            }
+        }
+        FileChannel file = storage.openVideo(video);
+        SharedReader nearest;
+        synchronized (this) {
+            // Un autre lecteur a pu être créé pendant l'ouverture
+            nearest = nearest(video, index);
+            if (nearest == null) {
+                nearest = new SharedReader(video, index, file);
+                readers.computeIfAbsent(video.getId(), id -> new ArrayList<>()).add(nearest);
+                file = null;
+            }
+            nearest.subscribers++;
+        }
+        if (file != null) {
+            closeQuietly(file);
+        }
+        return nearest;
+    }
+
+    private SharedReader nearest(VideoMetadata video, long index) {
+        SharedReader nearest = null;
+        for (SharedReader reader : readers.getOrDefault(video.getId(), List.of())) {
+            if (reader.accepts(index) && (nearest == null
+                    || Math.abs(reader.head - index) < Math.abs(nearest.head - index))) {
+                nearest = reader;
+            }
+        }
+        return nearest;
+    }
+
+    private void detach(SharedReader reader) {
+        synchronized (this) {
+            if (--reader.subscribers > 0) {
+                return;
+            }
+            List<SharedReader> list = readers.get(reader.video.getId());
+            if (list != null) {
+                list.remove(reader);
+                if (list.isEmpty()) {
+                    readers.remove(reader.video.getId());
+                }
+            }
+        }
+        closeQuietly(reader.file);
+    }
+
+    private static void closeQuietly(FileChannel file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    synchronized int getReaderCount() {
+        return readers.values().stream().mapToInt(List::size).sum();
+    }
+
+    // Vue d'une session sur les lecteurs partagés d'une vidéo
+    final class Subscription implements AutoCloseable {
+        private final VideoMetadata video;
+        private SharedReader reader;
+
+        private Subscription(VideoMetadata video) {
+            this.video = video;
+        }
+
+        // Vue en lecture seule de [position, position + length), length <= chunkLength(position)
+        ByteBuffer read(long position, int length) throws IOException {
+            long index = position / chunkSize;
+            if (reader == null) {
+                reader = attach(video, index);
+            }
+            ByteBuffer chunk;
+            while ((chunk = reader.chunk(index)) == null) {
+                // Hors de la fenêtre : rattachement au lecteur le plus proche (ou à un nouveau)
+                metrics.recordFanOutDetach();
+                detach(reader);
+                reader = null;
+                reader = attach(video, index);
+            }
+            int offset = (int) (position - index * chunkSize);
+            return chunk.slice(offset, length).asReadOnlyBuffer();
+        }
+
+        @Override
+        public void close() {
+            if (reader != null) {
+                detach(reader);
+                reader = null;
+            }
+        }
+    }
+
+    // Fenêtre glissante des derniers chunks lus pour une vidéo
+    private final class SharedReader {
+        private final VideoMetadata video;
+        private final FileChannel file;
+        private final long[] slotIndex;
+        private final List<CompletableFuture<ByteBuffer>> slots = new ArrayList<>(Collections.nCopies(window, null));
+        private volatile long head; // chunk le plus avancé demandé
+        private int subscribers;
+
+        SharedReader(VideoMetadata video, long firstIndex, FileChannel file) {
+            this.video = video;
+            this.file = file;
+            this.slotIndex = new long[window];
+            Arrays.fill(slotIndex, -1);
+            this.head = firstIndex - 1;
+        }
+
+        // Indicatif : chunk() revérifie sous le verrou du lecteur
+        boolean accepts(long index) {
+            return index > head - window && index <= head + window;
+        }
+
+        // null si le chunk est sorti de la fenêtre (session distancée) ou trop loin devant
+        ByteBuffer chunk(long index) throws IOException {
+            CompletableFuture<ByteBuffer> future;
+            boolean owner = false;
+            synchronized (this) {
+                if (index <= head - window || index > head + window) {
+                    return null;
+                }
+                int slot = (int) (index % window);
+                if (slotIndex[slot] == index) {
+                    future = slots.get(slot);
+                } else {
+                    // Chunk suivant (ou sauté) : il remplace le plus ancien de la fenêtre
+                    future = new CompletableFuture<>();
+                    slots.set(slot, future);
+                    slotIndex[slot] = index;
+                    head = Math.max(head, index);
+                    owner = true;
+                }
+            }
+
+            if (!owner) {
+                metrics.recordFanOutShared();
+                try {
+                    return future.join();
+                } catch (CompletionException e) {
+                    throw new IOException("Lecture partagée échouée pour " + video.getId(), e.getCause());
+                }
+            }
+
+            try {
+                ByteBuffer data = load(index);
+                future.complete(data);
+                metrics.recordFanOutRead();
+                return data;
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    int slot = (int) (index % window);
+                    if (slots.get(slot) == future) {
+                        slotIndex[slot] = -1;
+                        slots.set(slot, null);
+                    }
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        private ByteBuffer load(long index) throws IOException {
+            long start = index * chunkSize;
+            int length = (int) Math.min(chunkSize, video.getFileSize() - start);
+            if (cache != null) {
+                // Le cache déduplique aussi entre lecteurs ; la fenêtre garde les chunks utiles
+                // au groupe même si le cache les évince
+                return cache.read(video, file, start, length);
+            }
+            ByteBuffer data = ByteBuffer.allocateDirect(length);
+            while (data.hasRemaining()) {
+                if (file.read(data, start + data.position()) < 0) {
+                    throw new EOFException("Fichier tronqué pendant la lecture du chunk");
+                }
+            }
+            return data.flip();
+        }
+    }
+}
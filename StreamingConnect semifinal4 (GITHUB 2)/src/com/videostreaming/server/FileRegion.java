@@ -0,0 +1,41 @@
+package com.videostreaming.server;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+// Portion d'un fichier envoyée sans copie (FileChannel.transferTo / sendfile)
+class FileRegion implements Outbound {
+    private final FileChannel file;
+    private long position;
+    private long remaining;
+
+    FileRegion(FileChannel file, long position, long length) {
+        this.file = file;
+        this.position = position;
+        this.remaining = length;
+    }
+
+    // Sur un canal non bloquant, transferTo peut n'envoyer qu'une partie de la région
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        long sent = file.transferTo(position, remaining, channel);
+        if (sent == 0 && position >= file.size()) {
+            throw new IOException("Fichier tronqué pendant l'envoi");
+        }
+        position += sent;
+        remaining -= sent;
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        return remaining > 0;
+    }
+
+    // Canal bloquant : boucle jusqu'à l'envoi complet
+    void writeFully(WritableByteChannel channel) throws IOException {
+        while (hasRemaining()) {
+            writeTo(channel);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.videostreaming.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Contrôle de flux par crédit (protocole binaire v3) : le client accorde des octets selon la
+// place libre de son tampon (CREDIT:<octets>) et le serveur envoie tant qu'il lui en reste,
+// sans attendre d'accusé par chunk : le débit ne dépend plus de l'aller-retour.
+// Un chunk part dès que le crédit est positif et peut donc le dépasser d'au plus un chunk,
+// pour ne pas découper les chunks de la grille partagée (cache, lecteurs partagés).
+// Tant qu'aucun CREDIT n'est reçu (client v1/v2 ou legacy), l'envoi n'est pas limité.
+class FlowCredit {
+    private final AtomicLong credit = new AtomicLong();
+    private volatile boolean enabled;
+
+    // Octets accordés par une commande CREDIT:<octets> ; -1 (trame ignorée) si la valeur est
+    // illisible ou non positive : un crédit négatif bloquerait l'envoi
+    static long parseGrant(String command) {
+        try {
+            long bytes = Long.parseLong(command.substring("CREDIT:".length()));
+            if (bytes > 0) {
+                return bytes;
+            }
+        } catch (NumberFormatException e) {
+            // journalisé ci-dessous
+        }
+        System.err.println("Crédit invalide ignoré : " + command);
+        return -1;
+    }
+
+    // Reçu du thread de lecture des commandes ; l'envoi est fait par un autre thread
+    void grant(long bytes) {
+        credit.addAndGet(bytes);
+        enabled = true;
+    }
+
+    boolean available() {
+        return !enabled || credit.get() > 0;
+    }
+
+    void consume(int bytes) {
+        if (enabled) {
+            credit.addAndGet(-bytes);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.videostreaming.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Requête HTTP/1.1 : ligne de requête et en-têtes (noms en minuscules), sans corps
+final class HttpRequest {
+    private static final int MAX_LINE = 8 * 1024;
+    private static final int MAX_HEADERS = 100;
+
+    private final String method;
+    private final String path;
+    private final String version;
+    private final Map<String, String> headers;
+
+    private HttpRequest(String method, String path, String version, Map<String, String> headers) {
+        this.method = method;
+        this.path = path;
+        this.version = version;
+        this.headers = headers;
+    }
+
+    // null si la connexion a été fermée avant une nouvelle requête
+    static HttpRequest read(InputStream in) throws IOException {
+        String requestLine = readLine(in);
+        while (requestLine != null && requestLine.isEmpty()) {
+            requestLine = readLine(in); // lignes vides tolérées entre deux requêtes
+        }
+        if (requestLine == null) {
+            return null;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3 || !parts[2].startsWith("HTTP/")) {
+            throw new ProtocolException("Ligne de requête invalide : " + requestLine);
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0 || headers.size() >= MAX_HEADERS) {
+                throw new ProtocolException("En-tête invalide : " + line);
+            }
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+        if (line == null) {
+            throw new ProtocolException("Requête tronquée");
+        }
+
+        HttpRequest request = new HttpRequest(parts[0], parts[1], parts[2], headers);
+        // GET et HEAD n'ont pas de corps ; s'il y en a un, on le saute pour rester synchronisé
+        long contentLength = request.getContentLength();
+        if (contentLength > 0) {
+            in.skipNBytes(contentLength);
+        }
+        return request;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_LINE) {
+                throw new ProtocolException("Ligne trop longue");
+            }
+            line.append((char) b);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    long getContentLength() throws ProtocolException {
+        String value = getHeader("content-length");
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Content-Length invalide : " + value);
+        }
+    }
+
+    // HTTP/1.1 : persistante sauf "Connection: close" ; HTTP/1.0 : seulement avec "keep-alive"
+    boolean isKeepAlive() {
+        String connection = getHeader("connection");
+        if ("HTTP/1.0".equals(version)) {
+            return connection != null && connection.equalsIgnoreCase("keep-alive");
+        }
+        return connection == null || !connection.equalsIgnoreCase("close");
+    }
+}
@@ -0,0 +1,339 @@
+package com.videostreaming.server;
+
+import com.videostreaming.conf.ConfigLoader;
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Frontal HTTP/1.1 à côté du protocole maison, pour les lecteurs standard et les outils de mesure.
+//   GET /videos       : catalogue en JSON (ETag = version du catalogue)
+//   GET|HEAD /videos/<id> : contenu de la vidéo, avec Range (206 Partial Content)
+// Connexions persistantes (keep-alive), envoi zéro-copie par transferTo, même cadence
+// (BitratePacer) et mêmes métriques que les sessions du protocole maison.
+public class HttpVideoServer implements Runnable {
+    private static final String VIDEOS_PATH = "/videos";
+
+    private final VideoStreamingServer server;
+    private final int port;
+    private final int chunkSize;
+    private final int keepAliveTimeoutMillis;
+    private final ServerMetrics metrics;
+    private final ConnectionExecutor executor;
+
+    // "executor" : celui du serveur, pour que les deux frontaux partagent server.max.connections
+    public HttpVideoServer(VideoStreamingServer server, ConfigLoader config, int port, int chunkSize,
+                           ConnectionExecutor executor, ServerMetrics metrics) {
+        this.server = server;
+        this.port = port;
+        this.chunkSize = chunkSize;
+        this.keepAliveTimeoutMillis = config.getInt("http.keepalive.timeout", 15) * 1000;
+        this.metrics = metrics;
+        this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            System.out.println("HTTP front end started on port " + port);
+
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                long acceptedAt = System.nanoTime();
+                Socket socket = channel.socket();
+                executor.submit(socket, () -> handleConnection(channel, acceptedAt));
+            }
+        } catch (IOException e) {
+            System.err.println("Arrêt du frontal HTTP : " + e.getMessage());
+        }
+    }
+
+    private void handleConnection(SocketChannel channel, long acceptedAt) {
+        Socket socket = channel.socket();
+        HttpExchange exchange = new HttpExchange(channel, acceptedAt);
+        try {
+            socket.setSoTimeout(keepAliveTimeoutMillis);
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+
+            HttpRequest request;
+            while ((request = HttpRequest.read(in)) != null) {
+                boolean keepAlive = request.isKeepAlive();
+                handleRequest(request, exchange, keepAlive);
+                if (!keepAlive) {
+                    break;
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            // Connexion persistante inactive : fermeture normale
+        } catch (ProtocolException e) {
+            try {
+                exchange.sendError(400, "Bad Request", false);
+            } catch (IOException ignored) {
+            }
+        } catch (IOException e) {
+            // Client parti en cours de réponse
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void handleRequest(HttpRequest request, HttpExchange exchange, boolean keepAlive) throws IOException {
+        boolean head = "HEAD".equals(request.getMethod());
+        if (!head && !"GET".equals(request.getMethod())) {
+            exchange.sendError(405, "Method Not Allowed", keepAlive, "Allow: GET, HEAD\r\n");
+            return;
+        }
+
+        String path = request.getPath();
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+
+        if (path.equals(VIDEOS_PATH) || path.equals(VIDEOS_PATH + "/")) {
+            sendCatalog(request, exchange, head, keepAlive);
+        } else if (path.startsWith(VIDEOS_PATH + "/")) {
+            VideoMetadata video = server.findVideo(path.substring(VIDEOS_PATH.length() + 1));
+            if (video == null) {
+                exchange.sendError(404, "Not Found", keepAlive);
+            } else {
+                sendVideo(request, exchange, video, head, keepAlive);
+            }
+        } else {
+            exchange.sendError(404, "Not Found", keepAlive);
+        }
+    }
+
+    private void sendCatalog(HttpRequest request, HttpExchange exchange, boolean head, boolean keepAlive) throws IOException {
+        ControlVideoServer catalog = server.getCentralServer();
+        String etag = "\"" + catalog.getCatalogVersion() + "\"";
+        if (etag.equals(request.getHeader("if-none-match"))) {
+            exchange.sendHeaders(304, "Not Modified", "ETag: " + etag + "\r\n", -1, keepAlive);
+            return;
+        }
+
+        byte[] body = toJson(catalog.getAllAvailableVideos()).getBytes(StandardCharsets.UTF_8);
+        exchange.sendHeaders(200, "OK", "Content-Type: application/json; charset=utf-8\r\nETag: " + etag + "\r\n",
+                body.length, keepAlive);
+        if (!head) {
+            exchange.write(ByteBuffer.wrap(body));
+        }
+    }
+
+    private void sendVideo(HttpRequest request, HttpExchange exchange, VideoMetadata video, boolean head, boolean keepAlive)
+            throws IOException {
+        long fileSize = video.getFileSize();
+        long start = 0;
+        long end = fileSize - 1;
+        boolean partial = false;
+
+        String range = request.getHeader("range");
+        if (range != null) {
+            long[] bounds = parseRange(range, fileSize);
+            if (bounds == null) {
+                exchange.sendHeaders(416, "Range Not Satisfiable", "Content-Range: bytes */" + fileSize + "\r\n", 0, keepAlive);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                partial = true;
+            }
+        }
+
+        long length = end - start + 1;
+        String headers = "Content-Type: video/mp4\r\nAccept-Ranges: bytes\r\n"
+                + (partial ? "Content-Range: bytes " + start + "-" + end + "/" + fileSize + "\r\n" : "");
+        if (head) {
+            exchange.sendHeaders(partial ? 206 : 200, partial ? "Partial Content" : "OK", headers, length, keepAlive);
+            return;
+        }
+
+        try (FileChannel file = server.getCentralServer().openVideo(video)) {
+            exchange.sendHeaders(partial ? 206 : 200, partial ? "Partial Content" : "OK", headers, length, keepAlive);
+            BitratePacer pacer = exchange.pacerFor(video);
+            ChunkCache cache = server.getChunkCache();
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                int bytes;
+                if (cache != null) {
+                    // Découpage aligné sur les chunks du cache, partagés avec les sessions TCP
+                    bytes = (int) Math.min(cache.chunkLength(position, fileSize), remaining);
+                    exchange.write(cache.read(video, file, position, bytes));
+                } else {
+                    bytes = (int) Math.min(chunkSize, remaining);
+                    exchange.transfer(file, position, bytes);
+                }
+                position += bytes;
+                remaining -= bytes;
+                metrics.recordBytesSent(bytes);
+
+                long delay = pacer.reserve(bytes);
+                if (delay > 0 && remaining > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Envoi interrompu", e);
+                    }
+                }
+            }
+        }
+    }
+
+    // "bytes=a-b", "bytes=a-" ou "bytes=-n" -> {début, fin} ; {} si l'en-tête est ignoré
+    // (autre unité ou plusieurs plages : réponse complète) ; null si la plage est hors du fichier
+    static long[] parseRange(String header, long fileSize) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, fileSize - suffix);
+                end = fileSize - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? fileSize - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), fileSize - 1);
+            }
+            if (start >= fileSize || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static String toJson(List<VideoMetadata> videos) {
+        StringBuilder json = new StringBuilder("[");
+        for (VideoMetadata video : videos) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(escape(video.getId()))
+                    .append("\",\"title\":\"").append(escape(video.getTitle()))
+                    .append("\",\"size\":").append(video.getFileSize())
+                    .append(",\"duration\":").append(video.getDuration()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    // État d'une connexion : canal, mesure du premier octet, cadence réutilisée entre
+    // les requêtes successives sur la même vidéo (un lecteur enchaîne les plages)
+    private final class HttpExchange {
+        private final SocketChannel channel;
+        private final long acceptedAt;
+        private boolean firstByteSent = false;
+        private ByteBuffer copyBuffer;
+        private VideoMetadata pacedVideo;
+        private BitratePacer pacer;
+
+        HttpExchange(SocketChannel channel, long acceptedAt) {
+            this.channel = channel;
+            this.acceptedAt = acceptedAt;
+        }
+
+        BitratePacer pacerFor(VideoMetadata video) {
+            if (pacer == null || pacedVideo != video) {
+                pacer = BitratePacer.forVideo(video);
+                pacedVideo = video;
+            }
+            return pacer;
+        }
+
+        // contentLength < 0 : pas de Content-Length (304)
+        void sendHeaders(int status, String reason, String headers, long contentLength, boolean keepAlive) throws IOException {
+            StringBuilder response = new StringBuilder("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n")
+                    .append(headers);
+            if (contentLength >= 0) {
+                response.append("Content-Length: ").append(contentLength).append("\r\n");
+            }
+            response.append(keepAlive ? "Connection: keep-alive\r\n" : "Connection: close\r\n").append("\r\n");
+            write(ByteBuffer.wrap(response.toString().getBytes(StandardCharsets.ISO_8859_1)));
+            if (!firstByteSent) {
+                firstByteSent = true;
+                metrics.recordFirstByte(acceptedAt);
+            }
+        }
+
+        void sendError(int status, String reason, boolean keepAlive) throws IOException {
+            sendError(status, reason, keepAlive, "");
+        }
+
+        void sendError(int status, String reason, boolean keepAlive, String headers) throws IOException {
+            byte[] body = (status + " " + reason + "\n").getBytes(StandardCharsets.ISO_8859_1);
+            sendHeaders(status, reason, headers + "Content-Type: text/plain\r\n", body.length, keepAlive);
+            write(ByteBuffer.wrap(body));
+        }
+
+        void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        // Zéro-copie si activé, sinon copie par un tampon réutilisé
+        void transfer(FileChannel file, long position, int length) throws IOException {
+            if (VideoStreamingServer.ZERO_COPY) {
+                new FileRegion(file, position, length).writeFully(channel);
+                return;
+            }
+            if (copyBuffer == null || copyBuffer.capacity() < length) {
+                copyBuffer = ByteBuffer.allocate(length);
+            }
+            copyBuffer.clear().limit(length);
+            while (copyBuffer.hasRemaining()) {
+                if (file.read(copyBuffer, position + copyBuffer.position()) < 0) {
+                    throw new IOException("Fichier tronqué pendant l'envoi");
+                }
+            }
+            write(copyBuffer.flip());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.videostreaming.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Décodeur incrémental du flux ObjectOutputStream envoyé par le client.
+// Le client n'envoie que des String (writeObject) et parfois des données primitives
+// (writeLong/writeDouble), on ne gère donc que ce sous-ensemble du protocole de sérialisation.
+class LegacyCommandDecoder implements CommandDecoder {
+    private static final short STREAM_MAGIC = (short) 0xACED;
+    private static final short STREAM_VERSION = 5;
+    private static final int BASE_WIRE_HANDLE = 0x7E0000;
+
+    private static final byte TC_NULL = 0x70;
+    private static final byte TC_REFERENCE = 0x71;
+    private static final byte TC_STRING = 0x74;
+    private static final byte TC_BLOCKDATA = 0x77;
+    private static final byte TC_RESET = 0x79;
+    private static final byte TC_BLOCKDATALONG = 0x7A;
+
+    private final List<String> handles = new ArrayList<>();
+    private boolean headerRead = false;
+
+    // Retourne la prochaine commande complète, ou null s'il faut attendre plus d'octets.
+    // La position du buffer n'avance que sur les éléments entièrement décodés.
+    @Override
+    public String decode(ByteBuffer in) throws IOException {
+        if (!headerRead) {
+            if (in.remaining() < 4) {
+                return null;
+            }
+            if (in.getShort() != STREAM_MAGIC || in.getShort() != STREAM_VERSION) {
+                throw new StreamCorruptedException("En-tête de flux invalide");
+            }
+            headerRead = true;
+        }
+
+        while (in.hasRemaining()) {
+            int start = in.position();
+            byte tc = in.get();
+            switch (tc) {
+                case TC_STRING: {
+                    if (in.remaining() < 2) {
+                        in.position(start);
+                        return null;
+                    }
+                    int length = in.getShort() & 0xFFFF;
+                    if (in.remaining() < length) {
+                        in.position(start);
+                        return null;
+                    }
+                    byte[] utf = new byte[length + 2];
+                    utf[0] = (byte) (length >>> 8);
+                    utf[1] = (byte) length;
+                    in.get(utf, 2, length);
+                    String value = new DataInputStream(new ByteArrayInputStream(utf)).readUTF();
+                    handles.add(value);
+                    return value;
+                }
+                case TC_REFERENCE: {
+                    if (in.remaining() < 4) {
+                        in.position(start);
+                        return null;
+                    }
+                    int index = in.getInt() - BASE_WIRE_HANDLE;
+                    if (index < 0 || index >= handles.size()) {
+                        throw new StreamCorruptedException("Référence invalide : " + index);
+                    }
+                    return handles.get(index);
+                }
+                case TC_BLOCKDATA:
+                case TC_BLOCKDATALONG: {
+                    // Données primitives (ex. écho de VIDEO_START) : ignorées
+                    int headerSize = tc == TC_BLOCKDATA ? 1 : 4;
+                    if (in.remaining() < headerSize) {
+                        in.position(start);
+                        return null;
+                    }
+                    int length = tc == TC_BLOCKDATA ? in.get() & 0xFF : in.getInt();
+                    if (in.remaining() < length) {
+                        in.position(start);
+                        return null;
+                    }
+                    in.position(in.position() + length);
+                    break;
+                }
+                case TC_RESET:
+                    handles.clear();
+                    break;
+                case TC_NULL:
+                    // readObject() == null : le serveur bloquant ferme la connexion
+                    return "EXIT";
+                default:
+                    throw new StreamCorruptedException("Type non supporté dans une commande : " + tc);
+            }
+        }
+        return null;
+    }
+}
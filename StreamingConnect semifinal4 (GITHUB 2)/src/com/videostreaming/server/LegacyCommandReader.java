@@ -0,0 +1,55 @@
+package com.videostreaming.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OptionalDataException;
+
+class LegacyCommandReader implements CommandReader {
+    private final ObjectInputStream in;
+    // Flux du socket sous-jacent : ObjectInputStream.available() vaut 0 quand le prochain
+    // élément est un objet (chaîne de commande), il faut donc aussi regarder ce flux
+    private final InputStream raw;
+
+    LegacyCommandReader(ObjectInputStream in, InputStream raw) {
+        this.in = in;
+        this.raw = raw;
+    }
+
+    @Override
+    public String readCommand() throws IOException {
+        while (true) {
+            try {
+                return (String) in.readObject();
+            } catch (OptionalDataException e) {
+                if (e.eof) {
+                    return null;
+                }
+                // Données primitives (écho de VIDEO_START par le client) : on les ignore
+                in.skipBytes(e.length);
+            } catch (EOFException e) {
+                return null;
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException("Commande invalide", e);
+            }
+        }
+    }
+
+    @Override
+    public String pollCommand() throws IOException {
+        while (in.available() > 0 || raw.available() > 0) { // Vérifie si un signal du client est arrivé
+            try {
+                return (String) in.readObject();
+            } catch (OptionalDataException e) {
+                if (e.eof) {
+                    return null;
+                }
+                in.skipBytes(e.length);
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException("Commande invalide", e);
+            }
+        }
+        return null;
+    }
+}
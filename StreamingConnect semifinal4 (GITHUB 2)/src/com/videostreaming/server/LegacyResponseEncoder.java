@@ -0,0 +1,108 @@
+package com.videostreaming.server;
+
+import com.videostreaming.model.CatalogUpdate;
+import com.videostreaming.model.Playlist;
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Protocole d'origine : objets et chaînes via ObjectOutputStream
+class LegacyResponseEncoder implements ResponseEncoder {
+    private static final byte TC_BLOCKDATALONG = 0x7A;
+
+    private final ObjectOutputStream out;
+
+    LegacyResponseEncoder(OutputStream output) throws IOException {
+        this.out = new ObjectOutputStream(output);
+    }
+
+    @Override
+    public void catalog(List<VideoMetadata> videos) throws IOException {
+        out.writeObject(videos);
+    }
+
+    // Toujours complète : la liste seule, sans version
+    @Override
+    public void catalogUpdate(CatalogUpdate update) throws IOException {
+        catalog(update.added());
+    }
+
+    @Override
+    public void message(String message) throws IOException {
+        out.writeObject(message);
+    }
+
+    @Override
+    public void playlist(Playlist playlist) throws IOException {
+        out.writeObject(playlist);
+    }
+
+    @Override
+    public void videoStart(String videoId, long fileSize, double duration) throws IOException {
+        out.writeObject("VIDEO_START");
+        out.writeObject(videoId);
+        out.writeLong(fileSize);
+        out.writeDouble(duration);
+    }
+
+    @Override
+    public void videoEnd() throws IOException {
+        out.writeObject("VIDEO_END");
+    }
+
+    @Override
+    public void videoError() throws IOException {
+        out.writeObject("VIDEO_ERROR");
+    }
+
+    @Override
+    public void videoChange() throws IOException {
+        out.writeObject("VIDEO_CHANGE");
+    }
+
+    @Override
+    public void videoSeek(long position, double time) throws IOException {
+        out.writeObject("VIDEO_SEEK");
+        out.writeLong(position);
+        out.writeDouble(time);
+    }
+
+    @Override
+    public void chunk(byte[] data, int offset, int length, double progress) throws IOException {
+        out.writeObject("VIDEO_CHUNK");
+        out.writeInt(length);
+        out.write(data, offset, length);
+        out.writeDouble(progress);
+    }
+
+    // Le client lit le chunk par readInt / readFully / readDouble : ce sont des "block data"
+    // dans le flux de sérialisation. On écrit nous-mêmes un seul bloc TC_BLOCKDATALONG
+    // [taille][int][contenu][double] dont le contenu part directement du fichier.
+    @Override
+    public ByteBuffer chunkHeader(int length, double progress) throws IOException {
+        out.writeObject("VIDEO_CHUNK");
+        out.flush();
+
+        ByteBuffer header = ByteBuffer.allocate(1 + 4 + 4);
+        header.put(TC_BLOCKDATALONG);
+        header.putInt(4 + length + 8);
+        header.putInt(length);
+        return header.flip();
+    }
+
+    @Override
+    public ByteBuffer chunkTrailer(double progress) {
+        ByteBuffer trailer = ByteBuffer.allocate(8);
+        trailer.putDouble(progress);
+        return trailer.flip();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,131 @@
+package com.videostreaming.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Boucle d'événements : un Selector, les sessions qui lui sont attribuées et
+// les réveils programmés (cadence d'envoi des chunks).
+class NioEventLoop implements Runnable {
+    private final int index;
+    private final Selector selector;
+    private final Queue<NioSession> pendingSessions = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>(Comparator.comparingLong(Timer::deadline));
+    private volatile boolean running = true;
+
+    private record Timer(long deadline, NioSession session) {
+    }
+
+    NioEventLoop(int index) throws IOException {
+        this.index = index;
+        this.selector = Selector.open();
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    // Appelé depuis le thread d'acceptation
+    void register(NioSession session) {
+        pendingSessions.add(session);
+        selector.wakeup();
+    }
+
+    // Appelé depuis la boucle uniquement
+    void schedule(NioSession session, long deadline) {
+        timers.add(new Timer(deadline, session));
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                Timer next = timers.peek();
+                if (next == null) {
+                    selector.select();
+                } else {
+                    long timeout = (next.deadline() - System.nanoTime()) / 1_000_000;
+                    if (timeout <= 0) {
+                        selector.selectNow();
+                    } else {
+                        selector.select(timeout);
+                    }
+                }
+
+                registerPendingSessions();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioSession session = (NioSession) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            session.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            session.onWritable();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Session fermée (" + session.getClientAddress() + ") : " + e.getMessage());
+                        session.close();
+                    }
+                }
+
+                runTimers();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            e.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                ((NioSession) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void registerPendingSessions() {
+        NioSession session;
+        while ((session = pendingSessions.poll()) != null) {
+            try {
+                session.open();
+            } catch (IOException e) {
+                System.err.println("Impossible d'enregistrer la session : " + e.getMessage());
+                session.close();
+            }
+        }
+    }
+
+    private void runTimers() {
+        long now = System.nanoTime();
+        Timer timer;
+        while ((timer = timers.peek()) != null && timer.deadline() <= now) {
+            timers.poll();
+            NioSession session = timer.session();
+            try {
+                session.onTimer(timer.deadline());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Session fermée (" + session.getClientAddress() + ") : " + e.getMessage());
+                session.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,543 @@
+package com.videostreaming.server;
+
+import com.videostreaming.model.VideoMetadata;
+import com.videostreaming.protocol.BinaryProtocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Session cliente du serveur NIO : machine à états (attente de commande, streaming, pause)
+// pilotée par la boucle d'événements. Mêmes protocoles et mêmes états (ClientState,
+// playlists) que le serveur bloquant.
+class NioSession {
+    enum State { IDLE, STREAMING, PAUSED, CLOSED }
+
+    private final VideoStreamingServer server;
+    private final NioEventLoop loop;
+    private final SocketChannel channel;
+    private final ServerMetrics metrics;
+    private final long acceptedAt;
+    private final ClientSession session;
+    private final String clientAddress;
+
+    private SelectionKey key;
+    private State state = State.IDLE;
+    private boolean firstByteSent = false;
+
+    // Lecture : octets reçus pas encore décodés ; décodeur choisi à la négociation
+    private ByteBuffer inbound = ByteBuffer.allocate(1024);
+    private CommandDecoder decoder;
+    private long readAt; // réception des octets en cours de décodage
+
+    // Écriture : encodeur du protocole négocié sur un tampon mémoire vidé vers le canal
+    private final SessionOutput output = new SessionOutput();
+    private ResponseEncoder out;
+    private final ArrayDeque<Outbound> writeQueue = new ArrayDeque<>();
+    private final CatalogSync catalogSync;
+
+    // Streaming en cours
+    private VideoMetadata video;
+    private ClientState clientState;
+    private BitratePacer pacer;
+    private FileChannel file;
+    private FanOutReaders.Subscription shared; // lecteur partagé avec les sessions voisines
+    private long filePosition;
+    // Fichiers d'un streaming terminé dont des régions sont encore en file d'écriture
+    private final List<FileChannel> retiredFiles = new ArrayList<>();
+    private int chunksSent;
+    // Chunk en cours d'écriture sur le canal, pour la mesure du débit (ChunkSizer)
+    private int writingBytes;
+    private long writingSince;
+    private long scheduledAt = -1;
+    private boolean chunkDue = false;
+    private boolean creditStalled; // chunk dû en attente de crédit (compté une fois)
+
+    NioSession(VideoStreamingServer server, NioEventLoop loop, SocketChannel channel, ServerMetrics metrics, long acceptedAt) throws IOException {
+        this.server = server;
+        this.loop = loop;
+        this.channel = channel;
+        this.metrics = metrics;
+        this.acceptedAt = acceptedAt;
+        this.session = server.getSessions().open(channel.socket().getInetAddress().toString());
+        this.clientAddress = session.toString();
+        this.catalogSync = new CatalogSync(server.getCentralServer());
+    }
+
+    String getClientAddress() {
+        return clientAddress;
+    }
+
+    void open() throws IOException {
+        metrics.connectionOpened();
+        key = channel.register(loop.getSelector(), SelectionKey.OP_READ, this);
+        System.out.println("Client connected (NIO): " + clientAddress);
+    }
+
+    // Choix du protocole d'après les premiers octets : "VSBP" + version, ou en-tête ObjectOutputStream
+    private boolean negotiate() throws IOException {
+        if (inbound.remaining() < BinaryProtocol.MAGIC.length) {
+            return false;
+        }
+        byte[] magic = new byte[BinaryProtocol.MAGIC.length];
+        inbound.get(inbound.position(), magic);
+
+        if (BinaryProtocol.isBinaryMagic(magic)) {
+            if (inbound.remaining() < BinaryProtocol.HANDSHAKE_SIZE) {
+                return false;
+            }
+            inbound.position(inbound.position() + magic.length);
+            int version = BinaryProtocol.negotiate(inbound.get() & 0xFF);
+            BinaryResponseEncoder binaryOut = new BinaryResponseEncoder(output);
+            binaryOut.hello(version);
+            out = binaryOut;
+            if (version == 0) {
+                System.err.println("Version du protocole refusée pour " + clientAddress);
+                flush();
+                close();
+                return false;
+            }
+            decoder = new BinaryCommandDecoder();
+        } else {
+            // Le décodeur legacy lit lui-même l'en-tête du flux
+            out = new LegacyResponseEncoder(output);
+            decoder = new LegacyCommandDecoder();
+        }
+
+        sendCatalog();
+        return true;
+    }
+
+    void onReadable() throws IOException {
+        int read = channel.read(inbound);
+        if (read < 0) {
+            close();
+            return;
+        }
+        readAt = System.nanoTime();
+
+        inbound.flip();
+        if (decoder != null || negotiate()) {
+            String command;
+            while (state != State.CLOSED && (command = decoder.decode(inbound)) != null) {
+                handleCommand(command);
+            }
+        }
+        if (state == State.CLOSED) {
+            return;
+        }
+        inbound.compact();
+        if (!inbound.hasRemaining()) {
+            // Commande plus grande que le tampon : on l'agrandit
+            ByteBuffer larger = ByteBuffer.allocate(inbound.capacity() * 2);
+            inbound.flip();
+            larger.put(inbound);
+            inbound = larger;
+        }
+
+        if (state != State.CLOSED) {
+            flush();
+        }
+    }
+
+    void onWritable() throws IOException {
+        flush();
+    }
+
+    void onTimer(long deadline) throws IOException {
+        if (deadline != scheduledAt || state != State.STREAMING) {
+            return; // réveil périmé (pause, arrêt ou nouvelle vidéo entre-temps)
+        }
+        scheduledAt = -1;
+        chunkDue = true;
+        flush();
+    }
+
+    private void handleCommand(String command) throws IOException {
+        if ("EXIT".equals(command)) {
+            close();
+            return;
+        }
+
+        if (catalogSync.handleCommand(command) || server.handlePlaylistCommand(session, command, out)) {
+            sendCatalog();
+        }
+        else if (command.startsWith("STREAM:")) {
+            stopStreaming();
+            session.resetState();
+            startStreaming(command.substring(7));
+        }
+        else if ("PAUSE".equals(command)) {
+            ClientState current = session.getState();
+            if (current != null) {
+                current.pause();
+            }
+            if (state == State.STREAMING) {
+                state = State.PAUSED;
+                scheduledAt = -1; // le réveil en attente ne doit pas survivre à la reprise
+                System.out.println("Streaming en pause pour " + clientAddress);
+            }
+            out.message("VIDEO_PAUSED");
+            sendCatalog();
+        }
+        else if ("RESUME".equals(command)) {
+            ClientState current = session.getState();
+            if (current != null) {
+                current.resume();
+            }
+            if (state == State.PAUSED) {
+                state = State.STREAMING;
+                // Reprise : nouvelle rafale pour remplir le tampon du client, comme en mode bloquant
+                pacer = BitratePacer.forVideo(video);
+                chunkDue = true;
+            }
+            out.message("VIDEO_RESUMED");
+            sendCatalog();
+        }
+        else if ("STOP".equals(command)) {
+            ClientState current = session.getState();
+            if (current != null) {
+                current.stop();
+            }
+            stopStreaming();
+            out.message("VIDEO_STOPPED");
+            sendCatalog();
+        }
+        else if (command.startsWith("SEEK:")) {
+            seek(command);
+        }
+        else if ("CHANGE_VIDEO".equals(command)) {
+            if (state == State.STREAMING || state == State.PAUSED) {
+                System.out.println("Changement de vidéo détecté.");
+                stopStreaming();
+                out.videoChange();
+            }
+        }
+        else if (command.startsWith("CREDIT:")) {
+            // Le chunk en attente de crédit part au flush qui suit la lecture
+            long bytes = FlowCredit.parseGrant(command);
+            if (bytes < 0) {
+                return;
+            }
+            session.getFlowCredit().grant(bytes);
+            session.getChunkSizer().creditReceived(bytes, readAt);
+            return;
+        }
+        else {
+            if ("CHUNK_ACK".equals(command)) {
+                session.getChunkSizer().ackReceived(readAt);
+            }
+            return; // échos du client : rien à faire
+        }
+        if (VideoStreamingServer.isControlCommand(command) || "CHANGE_VIDEO".equals(command) || command.startsWith("SEEK:")) {
+            metrics.recordControlLatency(System.nanoTime() - readAt);
+        }
+    }
+
+    // En cours de streaming : on repositionne le fichier ; sinon on reprend la dernière vidéo
+    private void seek(String command) throws IOException {
+        long position = video != null ? VideoStreamingServer.seekPosition(command, video) : -1;
+        if (position < 0) {
+            out.message("SEEK_REFUSED");
+            return;
+        }
+        if (state == State.IDLE) {
+            startStreaming(video.getId(), position);
+            return;
+        }
+        filePosition = position;
+        clientState.seekTo(position);
+        // Nouvelle rafale : le tampon du client repart de zéro à cet endroit
+        pacer = BitratePacer.forVideo(video);
+        out.videoSeek(position, clientState.getCurrentTime());
+        System.out.println("Déplacement à l'octet " + position + " pour " + clientAddress);
+        if (state == State.STREAMING && scheduledAt >= 0) {
+            scheduledAt = -1;
+            chunkDue = true;
+        }
+    }
+
+    private void startStreaming(String videoId) throws IOException {
+        startStreaming(videoId, 0);
+    }
+
+    // startPosition > 0 : reprise après un SEEK, annoncée par VIDEO_SEEK au lieu de VIDEO_START
+    private void startStreaming(String videoId, long startPosition) throws IOException {
+        video = server.findVideo(videoId);
+        if (video == null) {
+            out.videoError();
+            System.err.println("Vidéo non trouvée : " + videoId);
+            sendCatalog();
+            return;
+        }
+
+        clientState = new ClientState(video.getFileSize(), video.getDuration());
+        session.setState(clientState);
+
+        try {
+            file = server.getCentralServer().openVideo(video);
+        } catch (IOException e) {
+            System.err.println("Erreur lors du streaming de la vidéo : " + videoId + " vers " + clientAddress);
+            out.videoError();
+            sendCatalog();
+            return;
+        }
+
+        System.out.println("Début du streaming pour " + videoId + " vers " + clientAddress);
+        long fileSize = video.getFileSize();
+        chunksSent = 0;
+        filePosition = startPosition;
+        FanOutReaders fanOut = server.getFanOutReaders();
+        shared = fanOut != null ? fanOut.subscribe(video) : null;
+
+        if (startPosition == 0) {
+            out.videoStart(videoId, fileSize, video.getDuration());
+        } else {
+            clientState.seekTo(startPosition);
+            out.videoSeek(startPosition, clientState.getCurrentTime());
+        }
+
+        pacer = BitratePacer.forVideo(video);
+        state = State.STREAMING;
+        chunkDue = true;
+    }
+
+    // Produit le chunk suivant une fois le précédent entièrement écrit sur le canal
+    private void sendNextChunk() throws IOException {
+        chunkDue = false;
+        if (clientState.isPaused()) {
+            state = State.PAUSED;
+            scheduledAt = -1;
+            return;
+        }
+
+        ChunkCache cache = server.getChunkCache();
+        int chunkSize = session.getChunkSizer().next();
+        int bytesRead = Math.min(chunkSize, shared != null ? server.getFanOutReaders().chunkLength(filePosition, video.getFileSize())
+                : cache != null ? cache.chunkLength(filePosition, video.getFileSize())
+                : (int) Math.min(chunkSize, video.getFileSize() - filePosition));
+        if (bytesRead <= 0) {
+            finishStreaming();
+            return;
+        }
+
+        long bytesSent = clientState.updateBytesSent(bytesRead);
+        double progress = (double) bytesSent / video.getFileSize() * video.getDuration();
+
+        writingBytes = bytesRead;
+        writingSince = System.nanoTime();
+        ByteBuffer data = shared != null ? shared.read(filePosition, bytesRead)
+                : cache != null ? cache.read(video, file, filePosition, bytesRead)
+                : null;
+        if (data != null) {
+            // Chunk partagé en mémoire : seule la vue de cette session avance
+            ByteBuffer header = out.chunkHeader(bytesRead, progress);
+            enqueue(output.drain());
+            writeQueue.add(Outbound.of(header));
+            writeQueue.add(Outbound.of(data));
+            ByteBuffer trailer = out.chunkTrailer(progress);
+            if (trailer != null) {
+                writeQueue.add(Outbound.of(trailer));
+            }
+        } else if (VideoStreamingServer.ZERO_COPY) {
+            // Zéro-copie : en-tête du protocole, région du fichier (transferTo), fin éventuelle
+            ByteBuffer header = out.chunkHeader(bytesRead, progress);
+            enqueue(output.drain());
+            writeQueue.add(Outbound.of(header));
+            writeQueue.add(new FileRegion(file, filePosition, bytesRead));
+            ByteBuffer trailer = out.chunkTrailer(progress);
+            if (trailer != null) {
+                writeQueue.add(Outbound.of(trailer));
+            }
+        } else {
+            // Copie dans le tampon de sortie de la session : le tampon de lecture est rendu aussitôt
+            BufferPool pool = server.getChunkBuffers();
+            ByteBuffer buffer = pool.acquire(bytesRead);
+            try {
+                while (buffer.hasRemaining()) {
+                    if (file.read(buffer, filePosition + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                out.chunk(buffer.array(), 0, bytesRead, progress);
+            } finally {
+                pool.release(buffer);
+            }
+        }
+        session.getFlowCredit().consume(bytesRead);
+        filePosition += bytesRead;
+        chunksSent++;
+        metrics.recordBytesSent(bytesRead);
+
+        if (clientState.isComplete() || filePosition >= video.getFileSize()) {
+            finishStreaming();
+            return;
+        }
+
+        // Cadence : pendant la rafale initiale le chunk suivant part dès que celui-ci est écrit
+        long delay = pacer.reserve(bytesRead);
+        if (delay <= 0) {
+            chunkDue = true;
+        } else {
+            scheduledAt = System.nanoTime() + delay;
+            loop.schedule(this, scheduledAt);
+        }
+    }
+
+    private void finishStreaming() throws IOException {
+        System.out.println("Streaming terminé pour la vidéo " + video.getId() + ".");
+        stopStreaming();
+        out.videoEnd();
+        sendCatalog();
+    }
+
+    private void stopStreaming() {
+        if (file != null) {
+            retiredFiles.add(file);
+            file = null;
+        }
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+        if (writeQueue.isEmpty()) {
+            closeRetiredFiles();
+        }
+        pacer = null;
+        scheduledAt = -1;
+        chunkDue = false;
+        if (state != State.CLOSED) {
+            state = State.IDLE;
+        }
+    }
+
+    private void sendCatalog() throws IOException {
+        catalogSync.send(out);
+    }
+
+    // Pousse les octets produits vers le canal, puis enchaîne le chunk suivant si possible
+    private void flush() throws IOException {
+        while (true) {
+            if (out != null) {
+                out.flush();
+            }
+            enqueue(output.drain());
+
+            while (!writeQueue.isEmpty()) {
+                Outbound head = writeQueue.peek();
+                head.writeTo(channel);
+                if (head.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                writeQueue.poll();
+                if (!firstByteSent) {
+                    firstByteSent = true;
+                    metrics.recordFirstByte(acceptedAt);
+                }
+            }
+            closeRetiredFiles();
+            if (writingBytes > 0) {
+                session.getChunkSizer().chunkWritten(writingBytes, writingSince, System.nanoTime());
+                writingBytes = 0;
+            }
+
+            if (state == State.STREAMING && chunkDue) {
+                // Sans crédit, le chunk attend le prochain CREDIT du client
+                if (!session.getFlowCredit().available()) {
+                    if (!creditStalled) {
+                        creditStalled = true;
+                        metrics.recordCreditStall();
+                    }
+                } else {
+                    creditStalled = false;
+                    sendNextChunk();
+                    continue;
+                }
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+    }
+
+    private void closeRetiredFiles() {
+        for (FileChannel retired : retiredFiles) {
+            try {
+                retired.close();
+            } catch (IOException ignored) {
+            }
+        }
+        retiredFiles.clear();
+    }
+
+    private void enqueue(ByteBuffer buffer) {
+        if (buffer != null) {
+            writeQueue.add(Outbound.of(buffer));
+        }
+    }
+
+    void close() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        stopStreaming();
+        state = State.CLOSED;
+        server.getConnections().release();
+        if (key != null) {
+            key.cancel();
+            metrics.connectionClosed();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        writeQueue.clear();
+        closeRetiredFiles();
+        server.getSessions().close(session);
+    }
+
+    // Tampon d'écriture de la session ; réduit après un gros chunk pour que
+    // les sessions inactives ne gardent pas 500 KB chacune
+    private static class SessionOutput extends OutputStream {
+        private byte[] buffer = new byte[1024];
+        private int count;
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+            }
+        }
+
+        ByteBuffer drain() {
+            if (count == 0) {
+                return null;
+            }
+            ByteBuffer drained = ByteBuffer.wrap(Arrays.copyOf(buffer, count));
+            count = 0;
+            if (buffer.length > 64 * 1024) {
+                buffer = new byte[1024];
+            }
+            return drained;
+        }
+    }
+}
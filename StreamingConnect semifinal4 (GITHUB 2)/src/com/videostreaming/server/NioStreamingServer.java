@@ -0,0 +1,75 @@
+package com.videostreaming.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+// Variante non bloquante du serveur : un thread d'acceptation et quelques boucles
+// d'événements (Selector) qui se partagent toutes les sessions clientes.
+public class NioStreamingServer {
+    private final VideoStreamingServer server;
+    private final int port;
+    private final ConnectionExecutor connections;
+    private final ServerMetrics metrics;
+    private final NioEventLoop[] loops;
+
+    public NioStreamingServer(VideoStreamingServer server, int port, int loopCount,
+                              ConnectionExecutor connections, ServerMetrics metrics) throws IOException {
+        this.server = server;
+        this.port = port;
+        this.connections = connections;
+        this.metrics = metrics;
+        this.loops = new NioEventLoop[Math.max(1, loopCount)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new NioEventLoop(i);
+        }
+    }
+
+    public void start() throws IOException {
+        for (NioEventLoop loop : loops) {
+            Thread thread = new Thread(loop, "nio-loop-" + loop.getIndex());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port), 1024);
+            System.out.println("Video Streaming Server (NIO, " + loops.length + " boucles) started on port " + port);
+
+            int next = 0;
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                long acceptedAt = System.nanoTime();
+                metrics.connectionAccepted();
+
+                // Place rendue par NioSession.close()
+                if (!connections.tryAcquire()) {
+                    System.err.println("Limite de " + connections.getMaxConnections()
+                            + " connexions atteinte, connexion refusée : " + channel.getRemoteAddress());
+                    metrics.connectionRejected();
+                    channel.close();
+                    continue;
+                }
+
+                NioEventLoop loop = loops[next++ % loops.length];
+                NioSession session;
+                try {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    session = new NioSession(server, loop, channel, metrics, acceptedAt);
+                } catch (IOException e) {
+                    connections.release();
+                    System.err.println("Connexion NIO abandonnée : " + e.getMessage());
+                    channel.close();
+                    continue;
+                }
+                loop.register(session);
+            }
+        } finally {
+            for (NioEventLoop loop : loops) {
+                loop.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.videostreaming.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+// Élément en attente d'écriture sur un canal : un tampon mémoire ou une région de fichier
+interface Outbound {
+    void writeTo(WritableByteChannel channel) throws IOException;
+
+    boolean hasRemaining();
+
+    static Outbound of(ByteBuffer buffer) {
+        return new Outbound() {
+            @Override
+            public void writeTo(WritableByteChannel channel) throws IOException {
+                channel.write(buffer);
+            }
+
+            @Override
+            public boolean hasRemaining() {
+                return buffer.hasRemaining();
+            }
+        };
+    }
+}
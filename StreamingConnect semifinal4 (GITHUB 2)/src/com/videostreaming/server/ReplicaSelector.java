@@ -0,0 +1,111 @@
+package com.videostreaming.server;
+
+import com.videostreaming.conf.ConfigLoader;
+import com.videostreaming.storage.VideoStorageServer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Choix du réplica à lire : celui dont le stockage a le moins de lectures en cours, pondéré
+// par sa latence récente. Si la lecture dépasse le centile replica.hedge.percentile des
+// latences de ce stockage, la même plage est demandée au réplica suivant et la première
+// réponse est retenue (lecture doublée).
+class ReplicaSelector {
+    private static final int SAMPLES = 128;
+    private static final int MIN_SAMPLES = 16;
+    private static final long UNIT = 64 * 1024;       // latences ramenées à une lecture de 64 Ko
+    private static final double SMOOTHING = 0.25;
+    private static final long FAILURE_NANOS = 1_000_000_000L; // latence comptée pour un échec
+
+    private final boolean hedging;
+    private final double percentile;
+    private final long hedgeMinNanos;
+    private final ServerMetrics metrics;
+    // Charge par stockage : les réplicas d'un même stockage partagent le même disque ou nœud
+    private final Map<VideoStorageServer, Load> loads = new ConcurrentHashMap<>();
+    private final ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+    // Tampons des lectures doublées (la première lecture va directement dans la destination)
+    private final BufferPool hedgeBuffers = new BufferPool(ChunkSizer.MIN, ChunkSizer.MAX, 8);
+
+    ReplicaSelector(boolean hedging, double percentile, long hedgeMinNanos, ServerMetrics metrics) {
+        this.hedging = hedging;
+        this.percentile = percentile;
+        this.hedgeMinNanos = hedgeMinNanos;
+        this.metrics = metrics;
+    }
+
+    static ReplicaSelector fromConfig(ConfigLoader config, ServerMetrics metrics) {
+        boolean hedging = Boolean.parseBoolean(config.getProperty("replica.hedge.enabled", "true"));
+        double percentile = Math.max(1, Math.min(100, config.getInt("replica.hedge.percentile", 95))) / 100.0;
+        long hedgeMinNanos = config.getLong("replica.hedge.min.ms", 2) * 1_000_000;
+        return new ReplicaSelector(hedging, percentile, hedgeMinNanos, metrics);
+    }
+
+    // Un seul réplica : son canal, sans intermédiaire
+    FileChannel open(ReplicaSet set) throws IOException {
+        if (set.replicas().size() == 1) {
+            ReplicaSet.Replica replica = set.replicas().get(0);
+            return replica.storage().openVideo(replica.video());
+        }
+        return new ReplicatedFileChannel(this, set);
+    }
+
+    Load load(VideoStorageServer storage) {
+        return loads.computeIfAbsent(storage, s -> new Load());
+    }
+
+    ExecutorService readers() {
+        return readers;
+    }
+
+    BufferPool hedgeBuffers() {
+        return hedgeBuffers;
+    }
+
+    ServerMetrics metrics() {
+        return metrics;
+    }
+
+    final class Load {
+        final AtomicInteger inFlight = new AtomicInteger();
+        private final long[] samples = new long[SAMPLES];
+        private int count;
+        private double average;                   // ns par UNIT (moyenne mobile), 0 = inconnu
+        private long threshold = Long.MAX_VALUE;  // centile des latences, ns par UNIT
+
+        // Un stockage jamais mesuré passe en premier, pour être évalué
+        synchronized double score() {
+            return (inFlight.get() + 1) * average;
+        }
+
+        synchronized void record(long nanos, int length) {
+            long normalized = nanos * UNIT / Math.max(length, UNIT);
+            average = average == 0 ? normalized : average + SMOOTHING * (normalized - average);
+            samples[count % SAMPLES] = normalized;
+            count++;
+            if (count >= MIN_SAMPLES && count % (MIN_SAMPLES / 2) == 0) {
+                long[] sorted = Arrays.copyOf(samples, Math.min(count, SAMPLES));
+                Arrays.sort(sorted);
+                threshold = sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+            }
+        }
+
+        void recordFailure(long nanos, int length) {
+            record(Math.max(nanos, FAILURE_NANOS), length);
+        }
+
+        // Délai avant de doubler une lecture de "length" octets (Long.MAX_VALUE = jamais)
+        synchronized long hedgeDelay(int length) {
+            if (!hedging || threshold == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            return Math.max(hedgeMinNanos, threshold * Math.max(length, UNIT) / UNIT);
+        }
+    }
+}
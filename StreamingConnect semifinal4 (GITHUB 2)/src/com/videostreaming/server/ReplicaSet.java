@@ -0,0 +1,56 @@
+package com.videostreaming.server;
+
+import com.videostreaming.model.VideoMetadata;
+import com.videostreaming.storage.VideoStorageServer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+// Vidéo logique du catalogue : les fichiers de même nom et de même taille présents sur
+// plusieurs stockages (répertoires locaux, nœuds distants) sont les réplicas d'une seule
+// vidéo, listée une fois sous un identifiant qui ne dépend pas du stockage.
+record ReplicaSet(VideoMetadata video, List<Replica> replicas) {
+
+    record Replica(VideoStorageServer storage, VideoMetadata video) {
+    }
+
+    // Clé de regroupement des réplicas
+    static String key(VideoMetadata replica) {
+        return replica.getTitle() + "/" + replica.getFileSize();
+    }
+
+    static String logicalId(String key) {
+        return UUID.nameUUIDFromBytes(("replica:" + key).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    // Métadonnées de la vidéo logique, reprises du premier réplica
+    static VideoMetadata logicalVideo(String id, VideoMetadata first) {
+        VideoMetadata video = new VideoMetadata();
+        video.setId(id);
+        video.setTitle(first.getTitle());
+        video.setFilePath(first.getFilePath());
+        video.setFileSize(first.getFileSize());
+        video.setDuration(first.getDuration());
+        video.setBitrate(first.getBitrate());
+        video.setCodec(first.getCodec());
+        video.setWidth(first.getWidth());
+        video.setHeight(first.getHeight());
+        return video;
+    }
+
+    // Mêmes fichiers (mêmes instances de métadonnées) sur les mêmes stockages
+    boolean sameReplicas(ReplicaSet other) {
+        if (other.replicas.size() != replicas.size()) {
+            return false;
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica a = replicas.get(i);
+            Replica b = other.replicas.get(i);
+            if (a.storage() != b.storage() || a.video() != b.video()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,305 @@
+package com.videostreaming.server;
+
+import com.videostreaming.storage.ReadOnlyFileChannel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+// Vidéo présente sur plusieurs stockages : chaque lecture va au réplica le moins chargé
+// (ReplicaSelector), est doublée sur le suivant si elle tarde, et passe au suivant si elle
+// échoue. Les réplicas sont ouverts à leur première lecture.
+class ReplicatedFileChannel extends ReadOnlyFileChannel {
+    private final ReplicaSelector selector;
+    private final List<ReplicaSet.Replica> replicas;
+    private final ReplicaSelector.Load[] loads;
+    private final FileChannel[] channels;
+    private final ReentrantLock openLock = new ReentrantLock();
+    private final long size;
+
+    ReplicatedFileChannel(ReplicaSelector selector, ReplicaSet set) {
+        this.selector = selector;
+        this.replicas = set.replicas();
+        this.loads = new ReplicaSelector.Load[replicas.size()];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = selector.load(replicas.get(i).storage());
+        }
+        this.channels = new FileChannel[replicas.size()];
+        this.size = set.video().getFileSize();
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        int length = (int) Math.min(dst.remaining(), size - position);
+        int[] order = ranked();
+        Read read = new Read(order, position, dst.slice(dst.position(), length));
+        read.launch();
+        try {
+            ByteBuffer data;
+            long delay = loads[order[0]].hedgeDelay(length);
+            if (delay == Long.MAX_VALUE) {
+                data = read.result.get();
+            } else {
+                try {
+                    data = read.result.get(delay, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (read.launch()) {
+                        selector.metrics().recordHedgedRead();
+                    }
+                    data = read.result.get();
+                }
+            }
+            read.deliver(data);
+            dst.position(dst.position() + length);
+            return length;
+        } catch (ExecutionException e) {
+            read.detach();
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            read.detach();
+            Thread.currentThread().interrupt();
+            throw new IOException("Lecture interrompue", e);
+        }
+    }
+
+    // Envoi sans copie depuis le réplica le moins chargé : un transferTo ne peut pas être doublé
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        ensureOpen();
+        int replica = ranked()[0];
+        ReplicaSelector.Load load = loads[replica];
+        load.inFlight.incrementAndGet();
+        try {
+            return channel(replica).transferTo(position, count, target);
+        } finally {
+            load.inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    // Réplicas du moins chargé au plus chargé
+    private int[] ranked() {
+        double[] scores = new double[loads.length];
+        for (int i = 0; i < loads.length; i++) {
+            scores[i] = loads[i].score();
+        }
+        return IntStream.range(0, loads.length).boxed()
+                .sorted(Comparator.comparingDouble(i -> scores[i]))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    private FileChannel channel(int replica) throws IOException {
+        openLock.lock();
+        try {
+            ensureOpen();
+            if (channels[replica] == null) {
+                ReplicaSet.Replica target = replicas.get(replica);
+                channels[replica] = target.storage().openVideo(target.video());
+            }
+            return channels[replica];
+        } finally {
+            openLock.unlock();
+        }
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        openLock.lock();
+        try {
+            for (FileChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+            Arrays.fill(channels, null);
+        } finally {
+            openLock.unlock();
+        }
+    }
+
+    // Une plage demandée à un ou plusieurs réplicas ; la première lecture complète l'emporte.
+    // La première tentative lit directement dans la destination, par tranches de UNIT octets ;
+    // les suivantes (doublure, reprise sur échec) dans un tampon du pool, recopié si elles
+    // gagnent. Avant cette copie, la première tentative est détachée : elle s'arrête à la fin
+    // de sa tranche en cours et n'écrit plus dans la destination, que l'appelant va réutiliser.
+    private final class Read {
+        private static final int SLICE = 64 * 1024;
+
+        private final int[] order;
+        private final long position;
+        private final ByteBuffer target;
+        private final int length;
+        final CompletableFuture<ByteBuffer> result = new CompletableFuture<>();
+        private final ReentrantLock targetLock = new ReentrantLock();
+        private boolean detached; // sous targetLock
+        private int launched;
+        private int failed;
+
+        Read(int[] order, long position, ByteBuffer target) {
+            this.order = order;
+            this.position = position;
+            this.target = target;
+            this.length = target.remaining();
+        }
+
+        // Lance la lecture sur le réplica suivant ; false s'ils ont tous été sollicités
+        boolean launch() {
+            int attempt;
+            synchronized (this) {
+                if (launched == order.length || result.isDone()) {
+                    return false;
+                }
+                attempt = launched++;
+            }
+            int replica = order[attempt];
+            try {
+                FileChannel channel = channel(replica);
+                selector.readers().execute(() -> run(attempt, replica, channel));
+            } catch (IOException e) {
+                failed(replica, e);
+            }
+            return true;
+        }
+
+        // Résultat retenu : recopié dans la destination s'il vient d'un tampon du pool
+        void deliver(ByteBuffer data) {
+            if (data == target) {
+                return;
+            }
+            detach();
+            target.clear().put(data);
+            selector.hedgeBuffers().release(data);
+        }
+
+        // La première tentative n'écrira plus dans la destination
+        void detach() {
+            targetLock.lock();
+            try {
+                detached = true;
+            } finally {
+                targetLock.unlock();
+            }
+        }
+
+        private void run(int attempt, int replica, FileChannel channel) {
+            ReplicaSelector.Load load = loads[replica];
+            load.inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            ByteBuffer data = attempt == 0 ? target : selector.hedgeBuffers().acquire(length);
+            try {
+                boolean finished = attempt == 0 ? readIntoTarget(channel, replica) : readFully(channel, data, replica);
+                if (!finished) {
+                    // Devancée par une autre tentative : seule la partie lue compte dans la latence
+                    load.record(System.nanoTime() - start, data.position());
+                    if (attempt > 0) {
+                        selector.hedgeBuffers().release(data);
+                    }
+                    return;
+                }
+                load.record(System.nanoTime() - start, length);
+                if (attempt == 0 ? completeWithTarget() : result.complete(data.flip())) {
+                    if (attempt > 0) {
+                        selector.metrics().recordHedgeWin();
+                    }
+                } else if (attempt > 0) {
+                    selector.hedgeBuffers().release(data);
+                }
+            } catch (IOException e) {
+                load.recordFailure(System.nanoTime() - start, length);
+                if (attempt > 0) {
+                    selector.hedgeBuffers().release(data);
+                }
+                failed(replica, e);
+            } finally {
+                load.inFlight.decrementAndGet();
+            }
+        }
+
+        // false si la tentative a été détachée avant la fin
+        private boolean readIntoTarget(FileChannel channel, int replica) throws IOException {
+            while (target.hasRemaining()) {
+                targetLock.lock();
+                try {
+                    if (detached) {
+                        return false;
+                    }
+                    int end = target.limit();
+                    target.limit(Math.min(end, target.position() + SLICE));
+                    try {
+                        readSome(channel, target, replica);
+                    } finally {
+                        target.limit(end);
+                    }
+                } finally {
+                    targetLock.unlock();
+                }
+            }
+            return true;
+        }
+
+        // Destination retournée sous targetLock : une tentative détachée ne la modifie plus,
+        // deliver() peut y recopier le tampon gagnant
+        private boolean completeWithTarget() {
+            targetLock.lock();
+            try {
+                return !detached && !result.isDone() && result.complete(target.flip());
+            } finally {
+                targetLock.unlock();
+            }
+        }
+
+        private boolean readFully(FileChannel channel, ByteBuffer data, int replica) throws IOException {
+            while (data.hasRemaining()) {
+                if (result.isDone()) {
+                    return false;
+                }
+                readSome(channel, data, replica);
+            }
+            return true;
+        }
+
+        private void readSome(FileChannel channel, ByteBuffer data, int replica) throws IOException {
+            if (channel.read(data, position + data.position()) < 0) {
+                throw new EOFException("Réplica tronqué : " + replicas.get(replica).video().getFilePath());
+            }
+        }
+
+        // Réplica en échec : on passe au suivant ; la lecture échoue quand tous ont échoué
+        private void failed(int replica, IOException e) {
+            System.err.println("Réplica " + replicas.get(replica).storage() + " en échec : " + e.getMessage());
+            synchronized (this) {
+                failed++;
+            }
+            if (!launch()) {
+                synchronized (this) {
+                    if (failed == launched) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.videostreaming.server;
+
+import com.videostreaming.model.CatalogUpdate;
+import com.videostreaming.model.Playlist;
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Messages envoyés au client, indépendamment du protocole (sérialisation Java ou binaire)
+interface ResponseEncoder {
+    void catalog(List<VideoMetadata> videos) throws IOException;
+
+    // Catalogue versionné (binaire v2+) : CATALOG complet ou CATALOG_DELTA.
+    // Les autres protocoles ne reçoivent que des mises à jour complètes (voir CatalogSync).
+    default boolean supportsCatalogUpdates() {
+        return false;
+    }
+
+    void catalogUpdate(CatalogUpdate update) throws IOException;
+
+    // Réponse textuelle : VIDEO_PAUSED, PLAYLIST_CREATED:..., VIDEO_NOT_FOUND, ...
+    void message(String message) throws IOException;
+
+    void playlist(Playlist playlist) throws IOException;
+
+    void videoStart(String videoId, long fileSize, double duration) throws IOException;
+
+    void videoEnd() throws IOException;
+
+    void videoError() throws IOException;
+
+    void videoChange() throws IOException;
+
+    // Le flux reprend à "position" (octets) ; time est la position équivalente en secondes
+    void videoSeek(long position, double time) throws IOException;
+
+    // Chunk complet copié depuis un tampon
+    void chunk(byte[] data, int offset, int length, double progress) throws IOException;
+
+    // Envoi zéro-copie : le flux est vidé, puis l'appelant écrit sur le canal
+    // chunkHeader, le contenu du fichier et chunkTrailer (null si inutile)
+    ByteBuffer chunkHeader(int length, double progress) throws IOException;
+
+    ByteBuffer chunkTrailer(double progress);
+
+    void flush() throws IOException;
+}
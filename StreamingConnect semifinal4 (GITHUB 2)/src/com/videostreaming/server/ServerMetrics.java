@@ -0,0 +1,217 @@
+package com.videostreaming.server;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ServerMetrics {
+    // Connexions
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+
+    // Latence entre accept() et le premier octet utile envoyé (catalogue)
+    private final LongAdder firstByteCount = new LongAdder();
+    private final LongAdder firstByteTotalNanos = new LongAdder();
+    private final AtomicLong firstByteMaxNanos = new AtomicLong();
+
+    // Délai entre la réception d'une commande de contrôle (PAUSE, SEEK...) et sa prise en compte
+    private final LongAdder controlCount = new LongAdder();
+    private final LongAdder controlTotalNanos = new LongAdder();
+    private final AtomicLong controlMaxNanos = new AtomicLong();
+
+    // Octets vidéo envoyés
+    private final LongAdder bytesSent = new LongAdder();
+
+    // Cache de chunks
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder cacheEvictions = new LongAdder();
+
+    // Lecteurs partagés : chunks lus sur le disque, servis à une autre session, détachements
+    private final LongAdder fanOutReads = new LongAdder();
+    private final LongAdder fanOutShared = new LongAdder();
+    private final LongAdder fanOutDetaches = new LongAdder();
+
+    // Réplicas : lectures doublées sur un second réplica, et celles qu'il a servies en premier
+    private final LongAdder hedgedReads = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    // Contrôle de flux : envois suspendus faute de crédit accordé par le client
+    private final LongAdder creditStalls = new LongAdder();
+
+    private ScheduledExecutorService reporter;
+
+    public void connectionAccepted() {
+        acceptedConnections.increment();
+    }
+
+    public void connectionRejected() {
+        rejectedConnections.increment();
+    }
+
+    public void connectionOpened() {
+        activeConnections.incrementAndGet();
+    }
+
+    public void connectionClosed() {
+        activeConnections.decrementAndGet();
+    }
+
+    public void recordFirstByte(long acceptedAtNanos) {
+        long elapsed = System.nanoTime() - acceptedAtNanos;
+        firstByteCount.increment();
+        firstByteTotalNanos.add(elapsed);
+        firstByteMaxNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    public void recordControlLatency(long nanos) {
+        controlCount.increment();
+        controlTotalNanos.add(nanos);
+        controlMaxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void recordBytesSent(long bytes) {
+        bytesSent.add(bytes);
+    }
+
+    public void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    public void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public void recordCacheEviction() {
+        cacheEvictions.increment();
+    }
+
+    public void recordFanOutRead() {
+        fanOutReads.increment();
+    }
+
+    public void recordFanOutShared() {
+        fanOutShared.increment();
+    }
+
+    public void recordFanOutDetach() {
+        fanOutDetaches.increment();
+    }
+
+    public void recordHedgedRead() {
+        hedgedReads.increment();
+    }
+
+    public void recordHedgeWin() {
+        hedgeWins.increment();
+    }
+
+    public void recordCreditStall() {
+        creditStalls.increment();
+    }
+
+    public long getCreditStalls() {
+        return creditStalls.sum();
+    }
+
+    public long getHedgedReads() {
+        return hedgedReads.sum();
+    }
+
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    public long getFanOutReads() {
+        return fanOutReads.sum();
+    }
+
+    public long getFanOutShared() {
+        return fanOutShared.sum();
+    }
+
+    public long getFanOutDetaches() {
+        return fanOutDetaches.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public long getCacheEvictions() {
+        return cacheEvictions.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    public double getAverageFirstByteMillis() {
+        long count = firstByteCount.sum();
+        return count == 0 ? 0.0 : firstByteTotalNanos.sum() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxFirstByteMillis() {
+        return firstByteMaxNanos.get() / 1_000_000.0;
+    }
+
+    public double getAverageControlLatencyMillis() {
+        long count = controlCount.sum();
+        return count == 0 ? 0.0 : controlTotalNanos.sum() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxControlLatencyMillis() {
+        return controlMaxNanos.get() / 1_000_000.0;
+    }
+
+    // Affiche périodiquement un résumé des métriques (intervalle en secondes, 0 = désactivé)
+    public synchronized void startReporting(int intervalSeconds) {
+        if (intervalSeconds <= 0 || reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(this), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[Métriques] connexions actives=%d, acceptées=%d, refusées=%d, premier octet moy=%.2f ms, max=%.2f ms, contrôle moy=%.2f ms, max=%.2f ms, envoyé=%d Mo, cache succès=%d, échecs=%d, évictions=%d, partage lectures=%d, partagés=%d, détachements=%d, lectures doublées=%d, gagnées=%d, attentes de crédit=%d",
+                getActiveConnections(), getAcceptedConnections(), getRejectedConnections(),
+                getAverageFirstByteMillis(), getMaxFirstByteMillis(),
+                getAverageControlLatencyMillis(), getMaxControlLatencyMillis(), getBytesSent() / (1024 * 1024),
+                getCacheHits(), getCacheMisses(), getCacheEvictions(),
+                getFanOutReads(), getFanOutShared(), getFanOutDetaches(),
+                getHedgedReads(), getHedgeWins(), getCreditStalls());
+    }
+}
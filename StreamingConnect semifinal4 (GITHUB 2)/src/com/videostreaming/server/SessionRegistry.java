@@ -0,0 +1,41 @@
+package com.videostreaming.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sessions ouvertes, indexées par identifiant de session (et non plus par adresse IP).
+// Lecture sans verrou (ConcurrentHashMap.get) ; l'ouverture et la fermeture ne touchent
+// qu'une case de la table, sans contention entre sessions différentes.
+public class SessionRegistry {
+    private final AtomicLong nextId = new AtomicLong();
+    private final ConcurrentHashMap<Long, ClientSession> sessions;
+
+    public SessionRegistry(int expectedSessions) {
+        this.sessions = new ConcurrentHashMap<>(Math.max(16, expectedSessions));
+    }
+
+    public ClientSession open(String clientAddress) {
+        ClientSession session = new ClientSession(nextId.incrementAndGet(), clientAddress);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    // null si la session est inconnue ou fermée
+    public ClientSession get(long id) {
+        return sessions.get(id);
+    }
+
+    // Appelé à la déconnexion : libère l'état et les playlists de la session
+    public void close(ClientSession session) {
+        if (sessions.remove(session.getId(), session)) {
+            ClientState state = session.getState();
+            if (state != null) {
+                state.stop();
+            }
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+}
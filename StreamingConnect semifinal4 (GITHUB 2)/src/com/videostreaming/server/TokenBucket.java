@@ -0,0 +1,34 @@
+package com.videostreaming.server;
+
+// Seau à jetons (en octets) par réservation : réserver plus que le solde est permis,
+// l'appelant attend alors le délai retourné avant l'envoi suivant
+class TokenBucket {
+    private final double bytesPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double bytesPerSecond, double capacity, double initialTokens) {
+        this.bytesPerNano = bytesPerSecond / 1_000_000_000.0;
+        this.capacity = capacity;
+        this.tokens = Math.min(initialTokens, capacity);
+        this.lastRefill = System.nanoTime();
+    }
+
+    // Consomme "bytes" jetons ; retourne le délai (ns) avant de pouvoir réserver de nouveau
+    synchronized long reserve(long bytes) {
+        refill();
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) (-tokens / bytesPerNano);
+    }
+
+    double getBytesPerSecond() {
+        return bytesPerNano * 1_000_000_000.0;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * bytesPerNano);
+        lastRefill = now;
+    }
+}
@@ -3,13 +3,16 @@ package com.videostreaming.server;
 import com.videostreaming.conf.ConfigLoader;
 import com.videostreaming.model.VideoMetadata;
 import com.videostreaming.model.Playlist;
+import com.videostreaming.protocol.BinaryProtocol;
 
 import java.net.SocketException;
-import java.util.ArrayList;
-import java.util.concurrent.ConcurrentHashMap;
 import java.io.*;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
@@ -18,115 +21,279 @@ public class VideoStreamingServer {
     static ConfigLoader config = new ConfigLoader(Paths.get("conf/conf.properties"));
     private static final int PORT = Integer.parseInt(config.getProperty("server.port"));
     private static final int CHUNK_SIZE = Integer.parseInt(config.getProperty("chuncksize")); // 64KB chunks for better streaming
-    private static ConcurrentHashMap<String, ClientState> clientStates = new ConcurrentHashMap<>();
-    private static ConcurrentHashMap<String, List<Playlist>> clientPlaylists = new ConcurrentHashMap<>();
+    static final boolean ZERO_COPY = Boolean.parseBoolean(config.getProperty("server.zerocopy", "true"));
+    private final SessionRegistry sessions = new SessionRegistry(config.getInt("server.max.connections", 10000));
     private ControlVideoServer centralServer;
+    private final ServerMetrics metrics = new ServerMetrics();
+    private ConnectionExecutor connections; // créé par start()
+    // Tampons des envois par copie (zéro-copie désactivé), partagés par toutes les sessions
+    private final BufferPool chunkBuffers = new BufferPool(ChunkSizer.MIN, ChunkSizer.MAX,
+            config.getInt("chunk.pool.per.class", 64));
+    private final ChunkCache chunkCache;
+    private final FanOutReaders fanOutReaders;
 
     public VideoStreamingServer() {
-        centralServer = new ControlVideoServer();
+        centralServer = new ControlVideoServer(metrics);
+        // Cache et lecteurs partagés découpent les fichiers selon la plus grande taille de chunk
+        chunkCache = ChunkCache.fromConfig(config, ChunkSizer.gridSize(), metrics);
+        if (chunkCache != null) {
+            // Identifiant logique = titre + taille : un fichier dont la taille change est retiré
+            // et revient sous un autre identifiant ; réécrit à taille égale, il garde le sien et
+            // arrive ici parmi les vidéos dont les réplicas ont changé
+            centralServer.addStorageChangeListener((storage, added, removed) ->
+                    removed.forEach(video -> chunkCache.invalidate(video.getId())));
+        }
+        fanOutReaders = FanOutReaders.fromConfig(config, ChunkSizer.gridSize(), centralServer, chunkCache, metrics);
+        centralServer.start();
     }
 
     public void start() {
-        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
+        // Une seule limite de connexions pour le protocole maison et le frontal HTTP
+        connections = ConnectionExecutor.fromConfig(config, metrics);
+
+        // Frontal HTTP optionnel (http.port, 0 = désactivé), quel que soit le mode du serveur
+        int httpPort = config.getInt("http.port", 0);
+        if (httpPort > 0) {
+            Thread http = new Thread(new HttpVideoServer(this, config, httpPort, CHUNK_SIZE, connections, metrics), "http-acceptor");
+            http.setDaemon(true);
+            http.start();
+        }
+
+        // Mode "nio" : quelques boucles d'événements (Selector) servent toutes les sessions
+        if ("nio".equalsIgnoreCase(config.getProperty("server.mode", "blocking"))) {
+            metrics.startReporting(config.getInt("server.metrics.interval", 0));
+            try {
+                new NioStreamingServer(this, PORT, config.getInt("server.nio.loops", 2), connections, metrics).start();
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                connections.shutdown();
+                metrics.stopReporting();
+            }
+            return;
+        }
+
+        metrics.startReporting(config.getInt("server.metrics.interval", 0));
+
+        // Sockets issus d'un ServerSocketChannel : ils exposent un SocketChannel pour transferTo
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(PORT));
             System.out.println("Video Streaming Server started on port " + PORT);
 
             while (true) {
-                Socket clientSocket = serverSocket.accept();
+                Socket clientSocket = serverChannel.accept().socket();
+                long acceptedAt = System.nanoTime();
                 System.out.println("Client connected: " + clientSocket.getInetAddress());
 
-                // Handle client connection in a new thread
-                new Thread(() -> handleClientConnection(clientSocket)).start();
+                // Connexion confiée à l'exécuteur (thread virtuel ou pool borné)
+                connections.submit(clientSocket, () -> handleClientConnection(clientSocket, acceptedAt));
             }
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            connections.shutdown();
+            metrics.stopReporting();
         }
     }
 
-    private void handleClientConnection(Socket clientSocket) {
-        String clientAddress = clientSocket.getInetAddress().toString();
-        clientPlaylists.putIfAbsent(clientAddress, new ArrayList<>());
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    ConnectionExecutor getConnections() {
+        return connections;
+    }
+
+    SessionRegistry getSessions() {
+        return sessions;
+    }
+
+    private void handleClientConnection(Socket clientSocket, long acceptedAt) {
+        ClientSession session = sessions.open(clientSocket.getInetAddress().toString());
+        String clientAddress = session.toString();
+        boolean firstByteSent = false;
+
+        try {
+            OutputStream socketOut = clientSocket.getOutputStream();
+            PushbackInputStream socketIn = new PushbackInputStream(clientSocket.getInputStream(), BinaryProtocol.MAGIC.length);
+            ResponseEncoder out;
+            CommandReader reader;
+
+            // Négociation : "VSBP" + version pour le protocole binaire, sinon en-tête ObjectOutputStream
+            byte[] magic = socketIn.readNBytes(BinaryProtocol.MAGIC.length);
+            if (BinaryProtocol.isBinaryMagic(magic)) {
+                int version = BinaryProtocol.negotiate(socketIn.read());
+                BinaryResponseEncoder binaryOut = new BinaryResponseEncoder(new BufferedOutputStream(socketOut));
+                binaryOut.hello(version);
+                binaryOut.flush();
+                if (version == 0) {
+                    System.err.println("Version du protocole refusée pour " + clientAddress);
+                    return;
+                }
+                out = binaryOut;
+                reader = new BinaryCommandReader(new DataInputStream(new BufferedInputStream(socketIn)));
+            } else {
+                socketIn.unread(magic);
+                out = new LegacyResponseEncoder(socketOut);
+                reader = new LegacyCommandReader(new ObjectInputStream(socketIn), socketIn);
+            }
 
-        try (
-                ObjectOutputStream out = new ObjectOutputStream(clientSocket.getOutputStream());
-                ObjectInputStream in = new ObjectInputStream(clientSocket.getInputStream())
-        ) {
+            // Lecture des commandes en parallèle de l'envoi des chunks
+            ControlChannel in = new ControlChannel(reader, session);
+            in.start();
+
+            CatalogSync catalogSync = new CatalogSync(centralServer);
+            String lastVideoId = null;
             while (true) {
-                // Envoyer la liste des vidéos disponibles immédiatement
-                List<VideoMetadata> videos = centralServer.getAllAvailableVideos();
-                out.writeObject(videos);
+                // Envoyer le catalogue (ou ce qui a changé depuis la version du client)
+                if (catalogSync.send(out)) {
+                    System.out.println("Catalogue v" + centralServer.getCatalogVersion() + " envoyé au client: "
+                            + centralServer.getAllAvailableVideos().size() + " vidéos");
+                }
                 out.flush();
-                System.out.println("Liste des vidéos envoyée au client: " + videos.size() + " vidéos");
+                if (!firstByteSent) {
+                    firstByteSent = true;
+                    metrics.recordFirstByte(acceptedAt);
+                }
 
-                String command = (String) in.readObject();
+                String command = in.readCommand();
                 if (command == null || "EXIT".equals(command)) break;
 
-                if (command.startsWith("CREATE_PLAYLIST:")) {
-                    String playlistName = command.substring(15);
-                    createPlaylist(clientAddress, playlistName, out);
-                }
-                else if (command.startsWith("ADD_TO_PLAYLIST:")) {
-                    String[] parts = command.substring(15).split(":", 2);
-                    String playlistName = parts[0];
-                    String videoId = parts[1];
-                    addToPlaylist(clientAddress, playlistName, videoId, out);
-                }
-                else if (command.startsWith("VIEW_PLAYLIST:")) {
-                    String playlistName = command.substring(14);
-                    viewPlaylist(clientAddress, playlistName, out);
+                if (catalogSync.handleCommand(command) || handlePlaylistCommand(session, command, out)) {
+                    continue;
                 }
                 else if (command.startsWith("STREAM:")) {
-                    resetClientState(clientAddress);
+                    session.resetState();
                     String videoId = command.substring(7);
-                    streamVideoToClient(videoId, out, clientAddress, in);
-                }
-                else if ("PAUSE".equals(command)) {
-                    clientStates.get(clientAddress).pause();
-                    out.writeObject("VIDEO_PAUSED");
-                    out.flush();
+                    lastVideoId = videoId;
+                    streamVideoToClient(videoId, out, session, in, clientSocket.getChannel(), 0);
                 }
-                else if ("RESUME".equals(command)) {
-                    clientStates.get(clientAddress).resume();
-                    out.writeObject("VIDEO_RESUMED");
-                    out.flush();
+                else if (command.startsWith("SEEK:")) {
+                    // Streaming en pause ou terminé : on repart de la position demandée
+                    VideoMetadata video = lastVideoId != null ? findVideo(lastVideoId) : null;
+                    long position = video != null ? seekPosition(command, video) : -1;
+                    if (position < 0) {
+                        out.message("SEEK_REFUSED");
+                        out.flush();
+                    } else {
+                        streamVideoToClient(lastVideoId, out, session, in, clientSocket.getChannel(), position);
+                    }
                 }
-                else if ("STOP".equals(command)) {
-                    clientStates.get(clientAddress).stop();
-                    out.writeObject("VIDEO_STOPPED");
-                    out.flush();
+                else if (isControlCommand(command)) {
+                    // Hors streaming : l'état a déjà été mis à jour à la réception
+                    acknowledgeControl(command, out, in);
                 }
             }
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         } finally {
             try {
                 clientSocket.close();
-                clientPlaylists.remove(clientAddress);
-                clientStates.remove(clientAddress);
+                sessions.close(session);
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
     }
 
-    private void resetClientState(String clientAddress) {
-        ClientState state = clientStates.get(clientAddress);
-        if (state != null) {
-            state.stop();  // Arrêter la vidéo
-            state = new ClientState(0, 0); // Réinitialiser l'état au lieu de le supprimer
-            clientStates.put(clientAddress, state);
+    // Commandes de playlist, partagées entre le mode bloquant et le mode NIO
+    boolean handlePlaylistCommand(ClientSession session, String command, ResponseEncoder out) throws IOException {
+        if (command.startsWith("CREATE_PLAYLIST:")) {
+            String playlistName = command.substring("CREATE_PLAYLIST:".length());
+            createPlaylist(session, playlistName, out);
+        }
+        else if (command.startsWith("ADD_TO_PLAYLIST:")) {
+            String[] parts = command.substring("ADD_TO_PLAYLIST:".length()).split(":", 2);
+            if (parts.length < 2) {
+                out.message("VIDEO_NOT_FOUND");
+                return true;
+            }
+            String playlistName = parts[0];
+            String videoId = parts[1];
+            addToPlaylist(session, playlistName, videoId, out);
+        }
+        else if (command.startsWith("VIEW_PLAYLIST:")) {
+            String playlistName = command.substring("VIEW_PLAYLIST:".length());
+            viewPlaylist(session, playlistName, out);
+        }
+        else {
+            return false;
+        }
+        return true;
+    }
+
+    BufferPool getChunkBuffers() {
+        return chunkBuffers;
+    }
+
+    // null si le cache est désactivé
+    ChunkCache getChunkCache() {
+        return chunkCache;
+    }
+
+    // null si les lecteurs partagés sont désactivés
+    FanOutReaders getFanOutReaders() {
+        return fanOutReaders;
+    }
+
+    ControlVideoServer getCentralServer() {
+        return centralServer;
+    }
+
+    VideoMetadata findVideo(String videoId) {
+        return centralServer.findVideo(videoId);
+    }
+
+    // SEEK:TIME:<secondes> ou SEEK:BYTE:<octet> -> position dans le fichier (-1 si invalide).
+    // Le temps est converti au prorata de la durée, comme la progression envoyée avec les chunks.
+    static long seekPosition(String command, VideoMetadata video) {
+        String[] parts = command.split(":", 3);
+        if (parts.length < 3) {
+            return -1;
+        }
+        long fileSize = video.getFileSize();
+        long position;
+        try {
+            if ("TIME".equals(parts[1])) {
+                if (video.getDuration() <= 0) {
+                    return -1;
+                }
+                position = (long) (Double.parseDouble(parts[2]) / video.getDuration() * fileSize);
+            } else if ("BYTE".equals(parts[1])) {
+                position = Long.parseLong(parts[2]);
+            } else {
+                return -1;
+            }
+        } catch (NumberFormatException e) {
+            return -1;
         }
+        return Math.max(0, Math.min(position, fileSize));
+    }
+
+    static boolean isControlCommand(String command) {
+        return "PAUSE".equals(command) || "RESUME".equals(command) || "STOP".equals(command);
     }
 
+    // Réponse à PAUSE / RESUME / STOP et mesure du délai depuis la réception de la commande
+    private void acknowledgeControl(String command, ResponseEncoder out, ControlChannel in) throws IOException {
+        switch (command) {
+            case "PAUSE" -> out.message("VIDEO_PAUSED");
+            case "RESUME" -> out.message("VIDEO_RESUMED");
+            default -> out.message("VIDEO_STOPPED");
+        }
+        out.flush();
+        metrics.recordControlLatency(in.lastCommandLatencyNanos());
+    }
 
-    private void streamVideoToClient(String videoId, ObjectOutputStream out, String clientAddress,ObjectInputStream in) throws IOException {
+    // startPosition > 0 : reprise après un SEEK, annoncée par VIDEO_SEEK au lieu de VIDEO_START
+    private void streamVideoToClient(String videoId, ResponseEncoder out, ClientSession session, ControlChannel in,
+                                     SocketChannel socketChannel, long startPosition) throws IOException {
+        String clientAddress = session.toString();
         // Récupérer les métadonnées de la vidéo demandée
-        VideoMetadata video = centralServer.getAllAvailableVideos().stream()
-                .filter(v -> v.getId().equals(videoId))
-                .findFirst()
-                .orElse(null);
+        VideoMetadata video = findVideo(videoId);
 
         if (video == null) {
-            out.writeObject("VIDEO_ERROR");
+            out.videoError();
             out.flush();
             System.err.println("Vidéo non trouvée : " + videoId);
             return;
@@ -135,163 +302,217 @@ public class VideoStreamingServer {
         // Assurer que le client a un état pour cette vidéo
         // Arrêter tout streaming précédent et réinitialiser l'état du client
 
-        clientStates.putIfAbsent(clientAddress, new ClientState(video.getFileSize(), video.getDuration()));
-        ClientState state = clientStates.get(clientAddress);
+        ClientState state = new ClientState(video.getFileSize(), video.getDuration());
+        session.setState(state);
 
         // Log du début du streaming
         System.out.println("Début du streaming pour " + videoId + " vers " + clientAddress);
         System.out.println("Ttle " + clientAddress);
 
+        // Sans SocketChannel (ou si désactivé), on repasse par une copie dans un tampon
+        boolean zeroCopy = ZERO_COPY && socketChannel != null;
+        ChunkCache cache = socketChannel != null ? chunkCache : null;
+        FanOutReaders fanOut = socketChannel != null ? fanOutReaders : null;
 
-
-        try (BufferedInputStream fileInputStream = new BufferedInputStream(new FileInputStream(video.getFilePath()))) {
+        try (FileChannel file = centralServer.openVideo(video);
+             FanOutReaders.Subscription shared = fanOut != null ? fanOut.subscribe(video) : null) {
             long fileSize = video.getFileSize();    // Taille totale du fichier vidéo
-            int chunkSize = CHUNK_SIZE;             // Taille de chaque chunk
-            int totalChunks = (int) Math.ceil((double) fileSize / chunkSize);  // Nombre total de chunks à envoyer
+            ChunkSizer sizer = session.getChunkSizer(); // Taille des chunks adaptée au lien du client
+            FlowCredit credit = session.getFlowCredit(); // Octets que le client peut encore recevoir
             int chunksSent = 0;
+            long position = startPosition;
 
             // Envoi des métadonnées au client
-            out.writeObject("VIDEO_START");
-            out.writeObject(videoId);
-            out.writeLong(fileSize);
-            out.writeDouble(video.getDuration());
+            if (startPosition == 0) {
+                out.videoStart(videoId, fileSize, video.getDuration());
+                System.out.println("Métadonnées envoyées.");
+            } else {
+                state.seekTo(startPosition);
+                out.videoSeek(startPosition, state.getCurrentTime());
+                System.out.println("Reprise à l'octet " + startPosition + " pour " + clientAddress);
+            }
             out.flush();
-            System.out.println("Métadonnées envoyées.");
 
-            byte[] buffer = new byte[chunkSize];
-            int bytesRead;
+            BitratePacer pacer = BitratePacer.forVideo(video);
+            long nextChunkAt = 0; // échéance de cadence du prochain chunk (0 = tout de suite)
+            System.out.println("Débit cible : " + (long) pacer.getRate() / 1024 + " Ko/s");
 
             // Boucle pour envoyer les chunks
-            while (true) {
-                // Lecture et envoi des chunks
-                while ((bytesRead = fileInputStream.read(buffer)) != -1) {
-                    if (state.isPaused()) {
-                        System.out.println("Streaming en pause pour " + clientAddress);
-                        break;
+            while (position < fileSize) {
+                // Commandes reçues pendant l'envoi ; en pause, on attend la suivante sans rien envoyer
+                String command;
+                while ((command = state.isPaused() ? in.readCommand() : in.pollCommand()) != null) {
+                    if ("CHANGE_VIDEO".equals(command)) {
+                        System.out.println("Changement de vidéo détecté.");
+                        out.videoChange();
+                        out.flush();
+                        metrics.recordControlLatency(in.lastCommandLatencyNanos());
+                        return; // Quitte proprement la méthode
                     }
-
-                    // Mise à jour de la progression
-                    state.updateBytesSent(bytesRead);
-                    double progress = (double) state.getBytesSent() / fileSize * video.getDuration();  // Calcul de la progression
-
-                    // Envoi du chunk au client
-                    out.writeObject("VIDEO_CHUNK");
-                    out.writeInt(bytesRead);
-                    out.write(buffer, 0, bytesRead);
-                    out.writeDouble(progress);
-                    out.flush();
-
-                    chunksSent++;
-                    System.out.println("Envoi du chunk " + chunksSent + " / " + totalChunks + ", " + bytesRead + " bytes, progression : " + progress + " s.");
-
-                    // Délai optionnel pour ajuster le débit
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
+                    if ("EXIT".equals(command)) {
+                        return;
+                    }
+                    if (isControlCommand(command)) {
+                        acknowledgeControl(command, out, in);
+                        if ("STOP".equals(command)) {
+                            System.out.println("Streaming arrêté pour " + clientAddress);
+                            return;
+                        }
+                        if ("RESUME".equals(command)) {
+                            // Reprise : nouvelle rafale pour remplir le tampon du client
+                            pacer = BitratePacer.forVideo(video);
+                            nextChunkAt = 0;
+                        }
+                    }
+                    else if (handlePlaylistCommand(session, command, out)) {
+                        out.flush();
+                    }
+                    else if (command.startsWith("SEEK:")) {
+                        long target = seekPosition(command, video);
+                        if (target >= 0) {
+                            position = target;
+                            state.seekTo(position);
+                            // Nouvelle rafale : le tampon du client repart de zéro à cet endroit
+                            pacer = BitratePacer.forVideo(video);
+                            nextChunkAt = 0;
+                            out.videoSeek(position, state.getCurrentTime());
+                            out.flush();
+                            System.out.println("Déplacement à l'octet " + position + " pour " + clientAddress);
+                        }
+                        metrics.recordControlLatency(in.lastCommandLatencyNanos());
+                    }
+                }
+                if (in.isClosed()) {
+                    return; // connexion fermée par le client
+                }
+                if (position >= fileSize) {
+                    break;
+                }
+                // Attente de cadence, écourtée par toute commande reçue : on la traite puis on
+                // reprend l'attente là où elle en était
+                long wait = nextChunkAt - System.nanoTime();
+                if (nextChunkAt > 0 && wait > 0) {
+                    in.await(wait);
+                    if (Thread.currentThread().isInterrupted()) {
                         break;
                     }
-
-                    if (state.isComplete()) {
-                        System.out.println("Streaming terminé pour " + clientAddress);
+                    continue;
+                }
+                // Plus de crédit : on attend que le client en rende, commandes traitées entre-temps
+                if (!credit.available()) {
+                    metrics.recordCreditStall();
+                    in.awaitCredit(credit);
+                    if (Thread.currentThread().isInterrupted()) {
                         break;
                     }
+                    continue;
                 }
 
-                // Vérification du changement de vidéo
-                while (true) {
-                    if (checkForVideoChange(in)) {
-                        System.out.println("Changement de vidéo détecté.");
-                        out.writeObject("VIDEO_CHANGE");
+                int chunkSize = sizer.next();
+                int bytesRead = Math.min(chunkSize, fanOut != null ? fanOut.chunkLength(position, fileSize)
+                        : cache != null ? cache.chunkLength(position, fileSize)
+                        : (int) Math.min(chunkSize, fileSize - position));
+
+                // Mise à jour de la progression
+                long bytesSent = state.updateBytesSent(bytesRead);
+                double progress = (double) bytesSent / fileSize * video.getDuration();  // Calcul de la progression
+
+                // Envoi du chunk au client
+                long writeStart = System.nanoTime();
+                if (shared != null) {
+                    ChunkWriter.writeChunk(out, socketChannel, shared.read(position, bytesRead), progress);
+                } else if (cache != null) {
+                    ChunkWriter.writeChunk(out, socketChannel, cache.read(video, file, position, bytesRead), progress);
+                } else if (zeroCopy) {
+                    ChunkWriter.writeChunk(out, socketChannel, file, position, bytesRead, progress);
+                } else {
+                    ByteBuffer buffer = chunkBuffers.acquire(bytesRead);
+                    try {
+                        while (buffer.hasRemaining()) {
+                            if (file.read(buffer, position + buffer.position()) < 0) {
+                                break;
+                            }
+                        }
+                        out.chunk(buffer.array(), 0, bytesRead, progress);
                         out.flush();
-                        return; // Quitte proprement la méthode
-                    }
-
-                    if ((bytesRead = fileInputStream.read(buffer)) == -1) {
-                        break;
+                    } finally {
+                        chunkBuffers.release(buffer);
                     }
-                    // Continue à envoyer les chunks...
                 }
+                sizer.chunkWritten(bytesRead, writeStart, System.nanoTime());
+                credit.consume(bytesRead);
+                position += bytesRead;
+                metrics.recordBytesSent(bytesRead);
+
+                chunksSent++;
+                System.out.println("Envoi du chunk " + chunksSent + ", " + bytesRead + " bytes, progression : " + progress + " s.");
 
+                // Cadence : attente imposée par le seau à jetons de la session (et le plafond global)
+                long delay = pacer.reserve(bytesRead);
+                nextChunkAt = delay > 0 ? System.nanoTime() + delay : 0;
 
-                // Si tous les chunks sont envoyés, terminer
-                if (chunksSent >= totalChunks) {
-                    System.out.println("Streaming terminé pour la vidéo " + videoId + ".");
+                if (state.isComplete()) {
+                    System.out.println("Streaming terminé pour " + clientAddress);
                     break;
                 }
             }
+            System.out.println("Streaming terminé pour la vidéo " + videoId + ".");
 
             // Envoi du message de fin de streaming
-            out.writeObject("VIDEO_END");
+            out.videoEnd();
             out.flush();
         } catch (IOException e) {
             System.err.println("Erreur lors du streaming de la vidéo : " + videoId + " vers " + clientAddress);
             e.printStackTrace();
-            out.writeObject("VIDEO_ERROR");
+            out.videoError();
             out.flush();
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    // Méthode pour vérifier si un changement de vidéo est demandé par le client
-    private boolean checkForVideoChange(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        if (in.available() > 0) { // Vérifie si un signal du client est arrivé
-            Object request = in.readObject();
-            if ("CHANGE_VIDEO".equals(request)) {
-                return true;
-            }
         }
-        return false;
     }
 
-    private void createPlaylist(String clientAddress, String playlistName, ObjectOutputStream out) throws IOException {
-        List<Playlist> playlists = clientPlaylists.get(clientAddress);
+    private void createPlaylist(ClientSession session, String playlistName, ResponseEncoder out) throws IOException {
+        List<Playlist> playlists = session.getPlaylists();
         boolean exists = playlists.stream().anyMatch(p -> p.getName().equals(playlistName));
         if (exists) {
-            out.writeObject("PLAYLIST_ALREADY_EXISTS");
+            out.message("PLAYLIST_ALREADY_EXISTS");
         } else {
             playlists.add(new Playlist(playlistName));
-            out.writeObject("PLAYLIST_CREATED:" + playlistName);
+            out.message("PLAYLIST_CREATED:" + playlistName);
         }
     }
 
 
-    private void addToPlaylist(String clientAddress, String playlistName, String videoId, ObjectOutputStream out) throws IOException {
-        List<Playlist> playlists = clientPlaylists.get(clientAddress);
+    private void addToPlaylist(ClientSession session, String playlistName, String videoId, ResponseEncoder out) throws IOException {
+        List<Playlist> playlists = session.getPlaylists();
         Playlist playlist = playlists.stream()
                 .filter(p -> p.getName().equals(playlistName))
                 .findFirst()
                 .orElse(null);
 
         if (playlist != null) {
-            VideoMetadata video = centralServer.getAllAvailableVideos().stream()
-                    .filter(v -> v.getId().equals(videoId))
-                    .findFirst()
-                    .orElse(null);
+            VideoMetadata video = findVideo(videoId);
 
             if (video != null) {
                 playlist.addVideo(video);
-                out.writeObject("VIDEO_ADDED_TO_PLAYLIST");
+                out.message("VIDEO_ADDED_TO_PLAYLIST");
             } else {
-                out.writeObject("VIDEO_NOT_FOUND");
+                out.message("VIDEO_NOT_FOUND");
             }
         } else {
-            out.writeObject("PLAYLIST_NOT_FOUND");
+            out.message("PLAYLIST_NOT_FOUND");
         }
     }
 
-    private void viewPlaylist(String clientAddress, String playlistName, ObjectOutputStream out) throws IOException {
-        List<Playlist> playlists = clientPlaylists.get(clientAddress);
+    private void viewPlaylist(ClientSession session, String playlistName, ResponseEncoder out) throws IOException {
+        List<Playlist> playlists = session.getPlaylists();
         Playlist playlist = playlists.stream()
                 .filter(p -> p.getName().equals(playlistName))
                 .findFirst()
                 .orElse(null);
 
         if (playlist != null) {
-            out.writeObject(playlist);
+            out.playlist(playlist);
         } else {
-            out.writeObject("PLAYLIST_NOT_FOUND");
+            out.message("PLAYLIST_NOT_FOUND");
         }
     }
 
@@ -0,0 +1,299 @@
+package com.videostreaming.storage;
+
+import com.videostreaming.conf.ConfigLoader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Étape d'ingestion : un MP4 dont "moov" est en fin de fichier ne peut être lu qu'une fois
+// entièrement téléchargé. On en écrit une copie avec moov en tête (faststart) dans le
+// répertoire storage.faststart.dir du stockage, et c'est elle qui est servie.
+// Déplacer moov devant les données décale celles-ci : les offsets de chunks (stco, ou co64 en
+// 64 bits) sont corrigés. Un stco qui déborderait 32 bits est converti en co64.
+// La copie porte la date de modification de l'original : elle est refaite si celui-ci change.
+final class Faststart {
+    static ConfigLoader config = new ConfigLoader(Paths.get("conf/conf.properties"));
+    static final boolean ENABLED = Boolean.parseBoolean(config.getProperty("storage.faststart", "true"));
+    static final String DIRECTORY = config.getProperty("storage.faststart.dir", ".faststart");
+
+    private static final int MAX_MOOV_SIZE = 64 * 1024 * 1024;
+
+    private static final int MOOV = Mp4Parser.fourcc("moov");
+    private static final int MDAT = Mp4Parser.fourcc("mdat");
+    private static final int TRAK = Mp4Parser.fourcc("trak");
+    private static final int MDIA = Mp4Parser.fourcc("mdia");
+    private static final int MINF = Mp4Parser.fourcc("minf");
+    private static final int STBL = Mp4Parser.fourcc("stbl");
+    private static final int STCO = Mp4Parser.fourcc("stco");
+    private static final int CO64 = Mp4Parser.fourcc("co64");
+
+    // Boîte de premier niveau : position et taille totale (en-tête compris) dans le fichier
+    private record TopBox(int type, long position, long size, int headerSize) {
+        long end() {
+            return position + size;
+        }
+    }
+
+    // Nouvelle position des octets du fichier d'origine une fois moov déplacé devant mdat
+    private record Layout(long dataStart, long moovStart, long moovEnd, long moovSize) {
+        long map(long offset) {
+            if (offset >= dataStart && offset < moovStart) {
+                return offset + moovSize;
+            }
+            if (offset >= moovEnd) {
+                return offset + moovSize - (moovEnd - moovStart);
+            }
+            return offset;
+        }
+    }
+
+    private Faststart() {
+    }
+
+    // Fichier à servir pour "source" : sa copie faststart (créée si besoin), sinon lui-même
+    static Path servedPath(Path root, Path source, BasicFileAttributes attributes) {
+        if (!ENABLED) {
+            return source;
+        }
+        Path copy = copyPath(root, source);
+        try {
+            FileTime modified = attributes.lastModifiedTime();
+            if (Files.exists(copy) && Files.getLastModifiedTime(copy).equals(modified)) {
+                return copy;
+            }
+            if (!needsFaststart(source)) {
+                Files.deleteIfExists(copy);
+                return source;
+            }
+            long start = System.nanoTime();
+            if (!remux(source, copy)) {
+                return source;
+            }
+            Files.setLastModifiedTime(copy, modified);
+            System.out.println("Faststart : " + source.getFileName() + " réécrit avec moov en tête ("
+                    + (System.nanoTime() - start) / 1_000_000 + " ms)");
+            return copy;
+        } catch (IOException e) {
+            System.err.println("Faststart impossible pour " + source + " : " + e.getMessage());
+            return source;
+        }
+    }
+
+    static Path copyPath(Path root, Path source) {
+        return root.resolve(DIRECTORY).resolve(root.relativize(source));
+    }
+
+    static boolean isCopy(Path root, Path path) {
+        return path.startsWith(root.resolve(DIRECTORY));
+    }
+
+    // Supprime les copies dont l'original a disparu ("keys" : chemins relatifs des originaux)
+    static void retain(Path root, Set<String> keys) {
+        Path directory = root.resolve(DIRECTORY);
+        if (!ENABLED || !Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path copy : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                String key = directory.relativize(copy).toString().replace('\\', '/');
+                if (!keys.contains(key)) {
+                    Files.deleteIfExists(copy);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Nettoyage des copies faststart impossible : " + e.getMessage());
+        }
+    }
+
+    // Vrai si moov suit le premier mdat
+    static boolean needsFaststart(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<TopBox> boxes = topLevelBoxes(channel);
+            TopBox moov = find(boxes, MOOV);
+            TopBox mdat = find(boxes, MDAT);
+            return moov != null && mdat != null && moov.position() > mdat.position();
+        }
+    }
+
+    // false si le fichier ne s'y prête pas (boîtes incohérentes, moov démesuré)
+    static boolean remux(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            List<TopBox> boxes = topLevelBoxes(in);
+            TopBox moov = find(boxes, MOOV);
+            TopBox mdat = find(boxes, MDAT);
+            if (moov == null || mdat == null || moov.position() < mdat.position() || moov.size() > MAX_MOOV_SIZE) {
+                return false;
+            }
+            ByteBuffer content = ByteBuffer.allocate((int) (moov.size() - moov.headerSize()));
+            readFully(in, content, moov.position() + moov.headerSize());
+            content.flip();
+
+            // Offsets 32 bits conservés si possible ; sinon tous les stco passent en co64,
+            // ce qui agrandit moov (et donc le décalage). Les en-têtes réécrits font toujours
+            // 8 octets : dans les deux cas, la taille de moov reconstruit est mesurée avant les offsets
+            byte[] sized = rebuild(MOOV, content, new Layout(0, 0, 0, 0), false);
+            byte[] rebuilt = sized == null ? null
+                    : rebuild(MOOV, content, new Layout(mdat.position(), moov.position(), moov.end(), sized.length), false);
+            if (rebuilt == null) {
+                sized = rebuild(MOOV, content, new Layout(0, 0, 0, 0), true);
+                rebuilt = rebuild(MOOV, content, new Layout(mdat.position(), moov.position(), moov.end(), sized.length), true);
+            }
+
+            Files.createDirectories(target.getParent());
+            Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                // Boîtes d'en-tête (ftyp...), moov, puis tout le reste dans l'ordre d'origine
+                for (TopBox box : boxes) {
+                    if (box.position() < mdat.position()) {
+                        copy(in, out, box);
+                    }
+                }
+                ByteBuffer moovBytes = ByteBuffer.wrap(rebuilt);
+                while (moovBytes.hasRemaining()) {
+                    out.write(moovBytes);
+                }
+                for (TopBox box : boxes) {
+                    if (box.position() >= mdat.position() && box.type() != MOOV) {
+                        copy(in, out, box);
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+    }
+
+    // Boîte (en-tête compris) avec ses offsets de chunks corrigés ; null si un offset ne
+    // tient plus sur 32 bits et que la conversion en co64 n'est pas demandée
+    private static byte[] rebuild(int type, ByteBuffer content, Layout layout, boolean upgrade) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.remaining() + 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // taille, renseignée à la fin
+        if (type == STCO || type == CO64) {
+            int count = content.getInt(4);
+            boolean wide = type == CO64 || upgrade;
+            out.writeInt(wide ? CO64 : STCO);
+            out.writeInt(content.getInt(0)); // version et flags
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                long offset = type == CO64 ? content.getLong(8 + i * 8) : content.getInt(8 + i * 4) & 0xFFFFFFFFL;
+                long mapped = layout.map(offset);
+                if (wide) {
+                    out.writeLong(mapped);
+                } else if (mapped > 0xFFFFFFFFL) {
+                    return null;
+                } else {
+                    out.writeInt((int) mapped);
+                }
+            }
+        } else {
+            out.writeInt(type);
+            for (int position = 0; position + 8 <= content.limit(); ) {
+                long size = content.getInt(position) & 0xFFFFFFFFL;
+                int childType = content.getInt(position + 4);
+                int headerSize = 8;
+                if (size == 1) {
+                    size = content.getLong(position + 8);
+                    headerSize = 16;
+                } else if (size == 0) {
+                    size = content.limit() - position;
+                }
+                if (size < headerSize || position + size > content.limit()) {
+                    throw new IOException("Boîte incohérente dans moov");
+                }
+                if (isContainer(childType) || childType == STCO || childType == CO64) {
+                    byte[] child = rebuild(childType, content.slice(position + headerSize, (int) size - headerSize), layout, upgrade);
+                    if (child == null) {
+                        return null;
+                    }
+                    out.write(child);
+                } else {
+                    out.write(content.array(), content.arrayOffset() + position, (int) size);
+                }
+                position += (int) size;
+            }
+        }
+        byte[] box = bytes.toByteArray();
+        ByteBuffer.wrap(box).putInt(0, box.length);
+        return box;
+    }
+
+    // Seul le chemin moov/trak/mdia/minf/stbl mène aux tables d'offsets
+    private static boolean isContainer(int type) {
+        return type == TRAK || type == MDIA || type == MINF || type == STBL;
+    }
+
+    private static List<TopBox> topLevelBoxes(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        List<TopBox> boxes = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        long position = 0;
+        while (position + 8 <= fileSize) {
+            readFully(channel, header.clear(), position);
+            long boxSize = header.flip().getInt() & 0xFFFFFFFFL;
+            int type = header.getInt();
+            int headerSize = 8;
+            if (boxSize == 1) {
+                readFully(channel, header.clear(), position + 8);
+                boxSize = header.flip().getLong();
+                headerSize = 16;
+            } else if (boxSize == 0) {
+                boxSize = fileSize - position;
+            }
+            if (boxSize < headerSize || position + boxSize > fileSize) {
+                return List.of();
+            }
+            boxes.add(new TopBox(type, position, boxSize, headerSize));
+            position += boxSize;
+        }
+        return boxes;
+    }
+
+    private static TopBox find(List<TopBox> boxes, int type) {
+        for (TopBox box : boxes) {
+            if (box.type() == type) {
+                return box;
+            }
+        }
+        return null;
+    }
+
+    private static void copy(FileChannel in, FileChannel out, TopBox box) throws IOException {
+        long copied = 0;
+        while (copied < box.size()) {
+            long n = in.transferTo(box.position() + copied, box.size() - copied, out);
+            if (n <= 0) {
+                throw new EOFException("Fichier tronqué pendant la copie faststart");
+            }
+            copied += n;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+    }
+}
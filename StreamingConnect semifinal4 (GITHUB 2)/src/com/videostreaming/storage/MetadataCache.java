@@ -0,0 +1,144 @@
+package com.videostreaming.storage;
+
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Cache disque des métadonnées d'un répertoire de stockage, indexé par chemin relatif.
+// Une entrée n'est valable que si la taille et la date de modification du fichier n'ont pas
+// changé : seuls les fichiers nouveaux ou modifiés repassent par ffprobe au démarrage.
+final class MetadataCache {
+    private static final int MAGIC = 0x56534D43; // "VSMC"
+    private static final int FORMAT_VERSION = 2;
+
+    record Entry(String id, long size, long modified, long duration, long bitrate, String codec, int width, int height) {
+    }
+
+    private final Path root;
+    private final Path file;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean dirty = false;
+
+    private MetadataCache(Path root, Path file) {
+        this.root = root;
+        this.file = file;
+    }
+
+    // Un cache absent, illisible ou d'un autre format est ignoré (tout sera resondé)
+    static MetadataCache load(Path root, String fileName) {
+        MetadataCache cache = new MetadataCache(root, root.resolve(fileName));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cache.file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new StreamCorruptedException("format inconnu");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                String id = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                long duration = in.readLong();
+                long bitrate = in.readLong();
+                String codec = in.readUTF();
+                cache.entries.put(path, new Entry(id, size, modified, duration, bitrate,
+                        codec.isEmpty() ? null : codec, in.readInt(), in.readInt()));
+            }
+        } catch (NoSuchFileException e) {
+            // Premier démarrage sur ce stockage
+        } catch (IOException e) {
+            System.err.println("Cache de métadonnées ignoré (" + cache.file + ") : " + e.getMessage());
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    String key(Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    // Métadonnées en cache si le fichier n'a pas changé, sinon null
+    VideoMetadata lookup(Path path, long size, long modified) {
+        Entry entry = entries.get(key(path));
+        if (entry == null || entry.size() != size || entry.modified() != modified) {
+            return null;
+        }
+        VideoMetadata video = new VideoMetadata();
+        video.setId(entry.id());
+        video.setTitle(path.getFileName().toString());
+        video.setFilePath(path.toString());
+        video.setFileSize(size);
+        video.setDuration(entry.duration());
+        video.setBitrate(entry.bitrate());
+        video.setCodec(entry.codec());
+        video.setWidth(entry.width());
+        video.setHeight(entry.height());
+        return video;
+    }
+
+    // Identifiant stable : celui déjà attribué à ce chemin, sinon dérivé du chemin
+    String idFor(Path path) {
+        Entry entry = entries.get(key(path));
+        if (entry != null) {
+            return entry.id();
+        }
+        String name = root.getFileName() + "/" + key(path);
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    void put(Path path, long size, long modified, VideoMetadata video) {
+        entries.put(key(path), new Entry(video.getId(), size, modified, video.getDuration(),
+                video.getBitrate(), video.getCodec(), video.getWidth(), video.getHeight()));
+        dirty = true;
+    }
+
+    // Oublie les fichiers qui ont disparu du stockage
+    void retain(Set<String> keys) {
+        if (entries.keySet().retainAll(keys)) {
+            dirty = true;
+        }
+    }
+
+    // Écriture dans un fichier temporaire puis renommage, pour ne jamais laisser un cache tronqué
+    void save() {
+        if (!dirty) {
+            return;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(e.getValue().id());
+                    out.writeLong(e.getValue().size());
+                    out.writeLong(e.getValue().modified());
+                    out.writeLong(e.getValue().duration());
+                    out.writeLong(e.getValue().bitrate());
+                    out.writeUTF(e.getValue().codec() != null ? e.getValue().codec() : "");
+                    out.writeInt(e.getValue().width());
+                    out.writeInt(e.getValue().height());
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("Impossible d'enregistrer le cache de métadonnées " + file + " : " + e.getMessage());
+        }
+    }
+}
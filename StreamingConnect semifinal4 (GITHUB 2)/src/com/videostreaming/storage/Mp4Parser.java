@@ -0,0 +1,226 @@
+package com.videostreaming.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Lecture des métadonnées d'un MP4 (ISO-BMFF) sans ffprobe.
+// Seuls les en-têtes des boîtes de premier niveau sont lus pour trouver "moov" (le contenu
+// de "mdat" est sauté), puis moov/mvhd et, pour chaque trak, mdhd, hdlr, stts et stsd.
+final class Mp4Parser {
+    // moov dépasse rarement quelques Mo ; au-delà, le fichier est jugé incohérent
+    private static final int MAX_MOOV_SIZE = 64 * 1024 * 1024;
+
+    private static final int MOOV = fourcc("moov");
+    private static final int MVHD = fourcc("mvhd");
+    private static final int TRAK = fourcc("trak");
+    private static final int MDIA = fourcc("mdia");
+    private static final int MDHD = fourcc("mdhd");
+    private static final int HDLR = fourcc("hdlr");
+    private static final int MINF = fourcc("minf");
+    private static final int STBL = fourcc("stbl");
+    private static final int STTS = fourcc("stts");
+    private static final int STSD = fourcc("stsd");
+    private static final int VIDE = fourcc("vide");
+    private static final int SOUN = fourcc("soun");
+
+    // Durée en secondes, débit moyen en bits/s, codecs des pistes ("avc1,mp4a"), résolution de la piste vidéo
+    record Mp4Info(double durationSeconds, long bitrate, String codec, int width, int height) {
+    }
+
+    private record Box(int type, ByteBuffer content) {
+    }
+
+    private Mp4Parser() {
+    }
+
+    // null si le fichier n'est pas un MP4 exploitable (pas de moov, boîtes incohérentes)
+    static Mp4Info parse(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer moov = readTopLevelBox(channel, MOOV);
+            if (moov == null) {
+                return null;
+            }
+            return parseMoov(moov, channel.size());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer readTopLevelBox(FileChannel channel, int wanted) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        long position = 0;
+        while (position + 8 <= fileSize) {
+            readFully(channel, header.clear(), position);
+            long boxSize = header.flip().getInt() & 0xFFFFFFFFL;
+            int type = header.getInt();
+            int headerSize = 8;
+            if (boxSize == 1) {
+                readFully(channel, header.clear(), position + 8);
+                boxSize = header.flip().getLong();
+                headerSize = 16;
+            } else if (boxSize == 0) {
+                boxSize = fileSize - position;
+            }
+            if (boxSize < headerSize || position + boxSize > fileSize) {
+                return null;
+            }
+
+            if (type == wanted) {
+                long contentSize = boxSize - headerSize;
+                if (contentSize > MAX_MOOV_SIZE) {
+                    return null;
+                }
+                ByteBuffer content = ByteBuffer.allocate((int) contentSize);
+                readFully(channel, content, position + headerSize);
+                return content.flip();
+            }
+            position += boxSize;
+        }
+        return null;
+    }
+
+    private static Mp4Info parseMoov(ByteBuffer moov, long fileSize) {
+        double duration = 0;
+        ByteBuffer mvhd = findBox(moov, MVHD);
+        if (mvhd != null) {
+            duration = fullBoxDuration(mvhd);
+        }
+
+        Set<String> codecs = new LinkedHashSet<>();
+        String videoCodec = null;
+        int width = 0;
+        int height = 0;
+        double longestTrack = 0;
+        for (Box trak : boxes(moov)) {
+            if (trak.type() != TRAK) {
+                continue;
+            }
+            ByteBuffer mdia = findBox(trak.content(), MDIA);
+            ByteBuffer mdhd = mdia != null ? findBox(mdia, MDHD) : null;
+            ByteBuffer hdlr = mdia != null ? findBox(mdia, HDLR) : null;
+            ByteBuffer minf = mdia != null ? findBox(mdia, MINF) : null;
+            ByteBuffer stbl = minf != null ? findBox(minf, STBL) : null;
+            if (mdhd == null || stbl == null) {
+                continue;
+            }
+            int handler = hdlr != null ? hdlr.getInt(8) : 0;
+
+            // Durée de la piste : somme des durées d'échantillons (stts), sinon celle de mdhd
+            long timescale = mdhdTimescale(mdhd);
+            ByteBuffer stts = findBox(stbl, STTS);
+            long samplesDuration = stts != null ? sttsDuration(stts) : 0;
+            double trackDuration = samplesDuration > 0 && timescale > 0
+                    ? (double) samplesDuration / timescale
+                    : fullBoxDuration(mdhd);
+            longestTrack = Math.max(longestTrack, trackDuration);
+
+            ByteBuffer stsd = findBox(stbl, STSD);
+            if (stsd == null || stsd.getInt(4) == 0) {
+                continue;
+            }
+            // Première entrée : [taille][format] puis, pour la vidéo, 24 octets avant largeur / hauteur
+            String format = fourccString(stsd.getInt(12));
+            if (handler == VIDE || handler == SOUN) {
+                codecs.add(format);
+            }
+            if (handler == VIDE && videoCodec == null) {
+                videoCodec = format;
+                width = stsd.getShort(40) & 0xFFFF;
+                height = stsd.getShort(42) & 0xFFFF;
+            }
+        }
+
+        if (duration <= 0) {
+            duration = longestTrack;
+        }
+        if (duration <= 0 && codecs.isEmpty()) {
+            return null;
+        }
+        long bitrate = duration > 0 ? (long) (fileSize * 8 / duration) : 0;
+        return new Mp4Info(duration, bitrate, codecs.isEmpty() ? null : String.join(",", codecs), width, height);
+    }
+
+    // mvhd et mdhd : version (1 octet) + flags, dates, timescale puis durée sur 32 ou 64 bits
+    private static double fullBoxDuration(ByteBuffer box) {
+        long timescale = mdhdTimescale(box);
+        long duration = box.get(0) == 1 ? box.getLong(24) : box.getInt(16) & 0xFFFFFFFFL;
+        return timescale > 0 ? (double) duration / timescale : 0;
+    }
+
+    private static long mdhdTimescale(ByteBuffer box) {
+        return (box.get(0) == 1 ? box.getInt(20) : box.getInt(12)) & 0xFFFFFFFFL;
+    }
+
+    private static long sttsDuration(ByteBuffer stts) {
+        long entries = stts.getInt(4) & 0xFFFFFFFFL;
+        long total = 0;
+        for (int i = 0; i < entries; i++) {
+            int offset = 8 + i * 8;
+            total += (stts.getInt(offset) & 0xFFFFFFFFL) * (stts.getInt(offset + 4) & 0xFFFFFFFFL);
+        }
+        return total;
+    }
+
+    private static ByteBuffer findBox(ByteBuffer parent, int type) {
+        for (Box box : boxes(parent)) {
+            if (box.type() == type) {
+                return box.content();
+            }
+        }
+        return null;
+    }
+
+    // Boîtes filles, chacune avec son contenu en tranche indépendante (positions à partir de 0)
+    private static List<Box> boxes(ByteBuffer parent) {
+        List<Box> boxes = new ArrayList<>();
+        int position = 0;
+        int limit = parent.limit();
+        while (position + 8 <= limit) {
+            long size = parent.getInt(position) & 0xFFFFFFFFL;
+            int type = parent.getInt(position + 4);
+            int headerSize = 8;
+            if (size == 1) {
+                size = parent.getLong(position + 8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = limit - position;
+            }
+            if (size < headerSize || position + size > limit) {
+                break;
+            }
+            boxes.add(new Box(type, parent.slice(position + headerSize, (int) size - headerSize)));
+            position += (int) size;
+        }
+        return boxes;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+    }
+
+    static int fourcc(String type) {
+        byte[] bytes = type.getBytes(StandardCharsets.US_ASCII);
+        return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF;
+    }
+
+    private static String fourccString(int type) {
+        return new String(ByteBuffer.allocate(4).putInt(type).array(), StandardCharsets.US_ASCII);
+    }
+}
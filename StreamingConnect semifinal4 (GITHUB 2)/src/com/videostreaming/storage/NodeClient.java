@@ -0,0 +1,239 @@
+package com.videostreaming.storage;
+
+import com.videostreaming.protocol.StorageProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Connexions du serveur de contrôle vers un nœud de stockage : un petit nombre de connexions
+// gardées ouvertes, sur lesquelles les requêtes de toutes les sessions sont envoyées à la
+// suite (pipeline). Un thread par connexion lit les réponses et les rend à leurs appelants.
+// Une connexion en erreur fait échouer ses requêtes en cours et est rouverte à la suivante.
+// Les appelants sont souvent des threads virtuels : les verrous sont des ReentrantLock, pour
+// ne pas bloquer un porteur (et les lecteurs de réponses) pendant une écriture ou une connexion.
+class NodeClient {
+    private final String host;
+    private final int port;
+    private final long timeoutMillis;
+    private final Connection[] pool;
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final ReentrantLock poolLock = new ReentrantLock();
+
+    record Response(int status, byte[] payload, int length) {
+    }
+
+    // Requête en attente de sa réponse ; "target" reçoit directement les octets d'un READ
+    private record Pending(CompletableFuture<Response> future, ByteBuffer target) {
+    }
+
+    NodeClient(String host, int port, int connections, long timeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+        this.pool = new Connection[Math.max(1, connections)];
+    }
+
+    String address() {
+        return host + ":" + port;
+    }
+
+    // Envoie une requête et attend sa réponse ; un statut ERROR devient une IOException
+    Response call(int operation, byte[] payload, ByteBuffer target) throws IOException {
+        Connection connection = connection();
+        CompletableFuture<Response> future = connection.send(nextRequestId.incrementAndGet(), operation, payload, target);
+        try {
+            Response response = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (response.status() == StorageProtocol.ERROR) {
+                throw new IOException("Nœud " + address() + " : " + new DataInputStream(
+                        new ByteArrayInputStream(response.payload())).readUTF());
+            }
+            return response;
+        } catch (TimeoutException e) {
+            // La réponse pourrait encore arriver dans "target" : la connexion est abandonnée
+            connection.fail(new IOException("Délai dépassé"));
+            throw new IOException("Nœud " + address() + " : pas de réponse après " + timeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            throw new IOException("Nœud " + address() + " : " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Requête au nœud " + address() + " interrompue", e);
+        }
+    }
+
+    // Lit au plus dst.remaining() octets à partir de position ; renvoie le nombre d'octets lus
+    int read(String videoId, long position, ByteBuffer dst) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeUTF(videoId);
+        payload.writeLong(position);
+        payload.writeInt(Math.min(dst.remaining(), StorageProtocol.MAX_READ));
+        return call(StorageProtocol.READ, bytes.toByteArray(), dst).length();
+    }
+
+    // La connexion la moins chargée, rouverte si elle est fermée
+    private Connection connection() throws IOException {
+        poolLock.lock();
+        try {
+            Connection best = null;
+            for (int i = 0; i < pool.length; i++) {
+                Connection connection = pool[i];
+                if (connection == null || connection.broken) {
+                    connection = new Connection();
+                    pool[i] = connection;
+                }
+                if (best == null || connection.inFlight.get() < best.inFlight.get()) {
+                    best = connection;
+                }
+            }
+            return best;
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    void close() {
+        poolLock.lock();
+        try {
+            for (Connection connection : pool) {
+                if (connection != null) {
+                    connection.fail(new IOException("Client fermé"));
+                }
+            }
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    private class Connection {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final byte[] scratch = new byte[64 * 1024];
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private volatile boolean broken;
+
+        Connection() throws IOException {
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), (int) timeoutMillis);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(0);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+
+            StorageProtocol.writeHandshake(out, StorageProtocol.VERSION);
+            socket.setSoTimeout((int) timeoutMillis);
+            int version = in.read();
+            socket.setSoTimeout(0);
+            if (version <= 0) {
+                socket.close();
+                throw new IOException("Nœud " + address() + " : protocole refusé");
+            }
+            Thread.ofVirtual().name("node-client-" + address()).start(this::readLoop);
+        }
+
+        CompletableFuture<Response> send(int requestId, int operation, byte[] payload, ByteBuffer target) {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            pending.put(requestId, new Pending(future, target));
+            inFlight.incrementAndGet();
+            writeLock.lock();
+            try {
+                StorageProtocol.writeHeader(out, requestId, operation, payload.length);
+                out.write(payload);
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                writeLock.unlock();
+            }
+            if (broken) {
+                // Connexion tombée avant l'enregistrement de la requête
+                fail(new IOException("Connexion fermée"));
+            }
+            return future;
+        }
+
+        private void readLoop() {
+            Pending request = null; // réponse en cours de lecture, déjà retirée de pending
+            try {
+                while (true) {
+                    StorageProtocol.Header header = StorageProtocol.readHeader(in);
+                    request = pending.remove(header.requestId());
+                    if (request == null) {
+                        throw new IOException("Réponse inattendue : " + header.requestId());
+                    }
+                    inFlight.decrementAndGet();
+                    if (header.code() == StorageProtocol.OK && request.target() != null) {
+                        receive(request.target(), header.length());
+                        request.future().complete(new Response(header.code(), null, header.length()));
+                    } else {
+                        if (header.length() > StorageProtocol.MAX_PAYLOAD) {
+                            throw new IOException("Réponse trop longue : " + header.length());
+                        }
+                        byte[] payload = new byte[header.length()];
+                        in.readFully(payload);
+                        request.future().complete(new Response(header.code(), payload, header.length()));
+                    }
+                    request = null;
+                }
+            } catch (IOException e) {
+                // Connexion coupée au milieu d'une réponse (fichier raccourci côté nœud...)
+                if (request != null) {
+                    request.future().completeExceptionally(new IOException("Réponse interrompue", e));
+                }
+                fail(e);
+            }
+        }
+
+        // Octets d'un READ, copiés directement dans le tampon de l'appelant
+        private void receive(ByteBuffer target, int length) throws IOException {
+            if (length > target.remaining()) {
+                throw new IOException("Réponse plus longue que la plage demandée : " + length);
+            }
+            if (target.hasArray()) {
+                in.readFully(target.array(), target.arrayOffset() + target.position(), length);
+                target.position(target.position() + length);
+                return;
+            }
+            int remaining = length;
+            while (remaining > 0) {
+                int n = Math.min(remaining, scratch.length);
+                in.readFully(scratch, 0, n);
+                target.put(scratch, 0, n);
+                remaining -= n;
+            }
+        }
+
+        void fail(IOException cause) {
+            broken = true;
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            for (Integer requestId : pending.keySet()) {
+                Pending request = pending.remove(requestId);
+                if (request != null) {
+                    inFlight.decrementAndGet();
+                    request.future().completeExceptionally(cause);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.videostreaming.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Base des vidéos qui ne sont pas un simple fichier local (nœud distant, plusieurs réplicas) :
+// les sous-classes fournissent la lecture positionnée, la taille et transferTo, le reste
+// (position courante, écritures refusées) est commun.
+// Verrou explicite plutôt que synchronized : un thread virtuel qui attend une lecture ne doit
+// pas bloquer son porteur, sur lequel cette lecture peut avoir à s'exécuter.
+public abstract class ReadOnlyFileChannel extends FileChannel {
+    protected final ReentrantLock lock = new ReentrantLock();
+    private long position;
+
+    @Override
+    public abstract int read(ByteBuffer dst, long position) throws IOException;
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        lock.lock();
+        try {
+            int n = read(dst, position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        lock.lock();
+        try {
+            long total = 0;
+            for (int i = offset; i < offset + length; i++) {
+                if (!dsts[i].hasRemaining()) {
+                    continue;
+                }
+                int n = read(dsts[i]);
+                if (n < 0) {
+                    return total > 0 ? total : -1;
+                }
+                total += n;
+                if (dsts[i].hasRemaining()) {
+                    break;
+                }
+            }
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long position() {
+        lock.lock();
+        try {
+            return position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public FileChannel position(long newPosition) {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Position négative : " + newPosition);
+        }
+        lock.lock();
+        try {
+            position = newPosition;
+            return this;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public FileChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public void force(boolean metaData) {
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) {
+        throw new UnsupportedOperationException("Vidéo sans fichier local : pas de projection en mémoire");
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) {
+        throw new UnsupportedOperationException("Vidéo sans fichier local : pas de verrou");
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) {
+        throw new UnsupportedOperationException("Vidéo sans fichier local : pas de verrou");
+    }
+
+    protected void ensureOpen() throws IOException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.videostreaming.storage;
+
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+// Vidéo d'un nœud distant vue comme un fichier en lecture seule : les sessions, le cache de
+// chunks et les lecteurs partagés l'utilisent comme un fichier local, chaque lecture devenant
+// une requête READ au nœud. transferTo passe par un tampon de lecture anticipée pour qu'un
+// envoi partiel sur un socket non bloquant ne relise pas la même plage au nœud.
+class RemoteFileChannel extends ReadOnlyFileChannel {
+    private static final int READ_AHEAD = 256 * 1024;
+
+    private final NodeClient node;
+    private final String videoId;
+    private final long size;
+    private ByteBuffer ahead;           // octets lus d'avance, à partir de aheadPosition
+    private long aheadPosition = -1;
+
+    RemoteFileChannel(NodeClient node, VideoMetadata video) {
+        this.node = node;
+        this.videoId = video.getId();
+        this.size = video.getFileSize();
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        int length = (int) Math.min(dst.remaining(), size - position);
+        ByteBuffer window = dst.slice(dst.position(), length);
+        int n = node.read(videoId, position, window);
+        dst.position(dst.position() + n);
+        return n;
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        ensureOpen();
+        if (position >= size || count <= 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            if (ahead == null) {
+                ahead = ByteBuffer.allocate(READ_AHEAD);
+            }
+            if (aheadPosition != position || !ahead.hasRemaining()) {
+                ahead.clear().limit((int) Math.min(READ_AHEAD, size - position));
+                while (ahead.hasRemaining()) {
+                    if (read(ahead, position + ahead.position()) < 0) {
+                        break;
+                    }
+                }
+                ahead.flip();
+                aheadPosition = position;
+            }
+            ByteBuffer chunk = ahead.slice(ahead.position(), (int) Math.min(ahead.remaining(), count));
+            int written = target.write(chunk);
+            ahead.position(ahead.position() + written);
+            aheadPosition += written;
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    protected void implCloseChannel() {
+    }
+}
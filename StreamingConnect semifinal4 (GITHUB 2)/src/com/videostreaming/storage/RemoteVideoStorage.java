@@ -0,0 +1,162 @@
+package com.videostreaming.storage;
+
+import com.videostreaming.model.VideoMetadata;
+import com.videostreaming.protocol.StorageProtocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Stockage porté par un nœud distant (StorageNode) : le catalogue est demandé au nœud,
+// et les vidéos sont lues par plages au travers des connexions du NodeClient.
+// Un nœud injoignable garde son dernier catalogue connu jusqu'à la relecture suivante.
+public class RemoteVideoStorage implements VideoStorageServer {
+    private final NodeClient node;
+    private final List<StorageChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile List<VideoMetadata> videos = List.of();
+    private volatile Map<String, VideoMetadata> videosById = Map.of();
+    private long catalogVersion = -1;
+
+    public RemoteVideoStorage(String host, int port, int connections, long timeoutMillis) {
+        this.node = new NodeClient(host, port, connections, timeoutMillis);
+        List<VideoMetadata> fetched = fetchCatalog();
+        if (fetched != null) {
+            setVideos(fetched);
+            System.out.println("Nœud " + node.address() + " : " + fetched.size() + " vidéo(s)");
+        }
+    }
+
+    // "hôte:port"
+    public static RemoteVideoStorage connect(String address, int connections, long timeoutMillis) {
+        int separator = address.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Adresse de nœud invalide (hôte:port attendu) : " + address);
+        }
+        return new RemoteVideoStorage(address.substring(0, separator).trim(),
+                Integer.parseInt(address.substring(separator + 1).trim()), connections, timeoutMillis);
+    }
+
+    // null si le catalogue n'a pas changé depuis la dernière demande ou si le nœud ne répond pas
+    private synchronized List<VideoMetadata> fetchCatalog() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new DataOutputStream(bytes).writeLong(catalogVersion);
+            NodeClient.Response response = node.call(StorageProtocol.CATALOG, bytes.toByteArray(), null);
+            if (response.status() == StorageProtocol.NOT_MODIFIED) {
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(response.payload()));
+            long version = in.readLong();
+            List<VideoMetadata> fetched = StorageProtocol.readVideos(in);
+            for (VideoMetadata video : fetched) {
+                video.setFilePath("node://" + node.address() + "/" + video.getId());
+            }
+            catalogVersion = version;
+            return fetched;
+        } catch (IOException e) {
+            System.err.println("Catalogue du nœud " + node.address() + " indisponible : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void setVideos(List<VideoMetadata> fetched) {
+        Map<String, VideoMetadata> byId = new HashMap<>();
+        for (VideoMetadata video : fetched) {
+            byId.put(video.getId(), video);
+        }
+        this.videos = List.copyOf(fetched);
+        this.videosById = byId;
+    }
+
+    @Override
+    public List<VideoMetadata> getAvailableVideos() {
+        return videos;
+    }
+
+    @Override
+    public void addChangeListener(StorageChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // Comme pour un stockage local : une vidéo dont la taille n'a pas changé garde son instance
+    @Override
+    public synchronized void rescan() {
+        List<VideoMetadata> fetched = fetchCatalog();
+        if (fetched == null) {
+            return;
+        }
+        Map<String, VideoMetadata> known = videosById;
+        List<VideoMetadata> scanned = new ArrayList<>(fetched.size());
+        List<VideoMetadata> added = new ArrayList<>();
+        Map<String, VideoMetadata> scannedById = new HashMap<>();
+        for (VideoMetadata video : fetched) {
+            VideoMetadata previous = known.get(video.getId());
+            if (previous != null && previous.getFileSize() == video.getFileSize()) {
+                video = previous;
+            } else {
+                added.add(video);
+            }
+            scanned.add(video);
+            scannedById.put(video.getId(), video);
+        }
+        List<VideoMetadata> removed = new ArrayList<>();
+        for (VideoMetadata video : known.values()) {
+            if (scannedById.get(video.getId()) != video) {
+                removed.add(video);
+            }
+        }
+
+        setVideos(scanned);
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            System.out.println("Nœud " + node.address() + " : " + added.size() + " vidéo(s) ajoutée(s), " + removed.size() + " retirée(s)");
+            for (StorageChangeListener listener : listeners) {
+                listener.videosChanged(this, added, removed);
+            }
+        }
+    }
+
+    @Override
+    public FileChannel openVideo(VideoMetadata video) {
+        return new RemoteFileChannel(node, video);
+    }
+
+    @Override
+    public void streamVideo(String videoId, OutputStream clientOutputStream) {
+        VideoMetadata video = videosById.get(videoId);
+        if (video == null) {
+            throw new IllegalArgumentException("Vidéo non trouvée");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = 0;
+        try {
+            while (position < video.getFileSize()) {
+                buffer.clear();
+                int bytesRead = node.read(videoId, position, buffer);
+                if (bytesRead <= 0) {
+                    break;
+                }
+                clientOutputStream.write(buffer.array(), 0, bytesRead);
+                clientOutputStream.flush();
+                position += bytesRead;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "node://" + node.address();
+    }
+}
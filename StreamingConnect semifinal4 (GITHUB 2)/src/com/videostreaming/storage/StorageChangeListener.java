@@ -0,0 +1,10 @@
+package com.videostreaming.storage;
+
+import com.videostreaming.model.VideoMetadata;
+
+import java.util.List;
+
+// Notification d'un stockage dont le contenu a changé (nouvelles vidéos, vidéos retirées)
+public interface StorageChangeListener {
+    void videosChanged(VideoStorageServer storage, List<VideoMetadata> added, List<VideoMetadata> removed);
+}
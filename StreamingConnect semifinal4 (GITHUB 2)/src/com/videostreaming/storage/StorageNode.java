@@ -0,0 +1,272 @@
+package com.videostreaming.storage;
+
+import com.videostreaming.conf.ConfigLoader;
+import com.videostreaming.model.VideoMetadata;
+import com.videostreaming.protocol.StorageProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Nœud de stockage autonome : expose le catalogue et la lecture par plages de ses
+// répertoires au serveur de contrôle (StorageProtocol), pour répartir les vidéos sur
+// plusieurs machines. Lancement : StorageNode <port> <répertoire>...
+// Chaque connexion est servie par un thread virtuel ; les octets lus sont envoyés sans
+// copie (transferTo) juste après l'en-tête de la réponse.
+public class StorageNode {
+    static ConfigLoader config = new ConfigLoader(Paths.get("conf/conf.properties"));
+
+    // Fichiers gardés ouverts par connexion (les plus récemment lus)
+    private static final int MAX_OPEN_FILES = config.getInt("storage.node.open.files", 16);
+
+    private final int port;
+    private final List<VideoStorage> storages = new ArrayList<>();
+    private volatile Map<String, VideoMetadata> videosById = Map.of();
+    private volatile List<VideoMetadata> catalog = List.of();
+    // Version du catalogue du nœud, incrémentée à chaque changement d'un de ses répertoires
+    private volatile long catalogVersion = System.currentTimeMillis();
+
+    public StorageNode(int port, List<String> directories) {
+        this.port = port;
+        String cacheFile = config.getProperty("storage.metadata.cache", VideoStorage.DEFAULT_CACHE_FILE);
+        for (String directory : directories) {
+            VideoStorage storage = new VideoStorage(Paths.get(directory), cacheFile);
+            storage.addChangeListener((source, added, removed) -> onStorageChanged());
+            storages.add(storage);
+        }
+        rebuildCatalog();
+    }
+
+    private synchronized void onStorageChanged() {
+        rebuildCatalog();
+        catalogVersion++;
+    }
+
+    private synchronized void rebuildCatalog() {
+        List<VideoMetadata> videos = new ArrayList<>();
+        Map<String, VideoMetadata> byId = new HashMap<>();
+        for (VideoStorage storage : storages) {
+            for (VideoMetadata video : storage.getAvailableVideos()) {
+                videos.add(video);
+                byId.put(video.getId(), video);
+            }
+        }
+        catalog = List.copyOf(videos);
+        videosById = byId;
+    }
+
+    public void start() {
+        startPeriodicRescan(config.getInt("storage.rescan.interval", 0));
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            System.out.println("Nœud de stockage en écoute sur le port " + port + " (" + catalog.size() + " vidéos)");
+            while (true) {
+                SocketChannel channel = server.accept();
+                Thread.ofVirtual().name("node-" + channel.getRemoteAddress()).start(() -> serve(channel));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        // Fichiers ouverts par cette connexion, gardés tant qu'ils servent
+        OpenFiles files = new OpenFiles();
+        try (channel) {
+            channel.socket().setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+
+            byte[] handshake = new byte[StorageProtocol.HANDSHAKE_SIZE];
+            in.readFully(handshake);
+            if (!StorageProtocol.isMagic(handshake) || handshake[StorageProtocol.MAGIC.length] < 1) {
+                out.write(0);
+                out.flush();
+                return;
+            }
+            out.write(Math.min(handshake[StorageProtocol.MAGIC.length], StorageProtocol.VERSION));
+            out.flush();
+
+            while (true) {
+                StorageProtocol.Header request = StorageProtocol.readHeader(in);
+                if (request.length() > StorageProtocol.MAX_PAYLOAD) {
+                    throw new IOException("Requête trop longue : " + request.length());
+                }
+                byte[] payload = new byte[request.length()];
+                in.readFully(payload);
+                DataInputStream body = new DataInputStream(new ByteArrayInputStream(payload));
+                switch (request.code()) {
+                    case StorageProtocol.CATALOG -> sendCatalog(out, request.requestId(), body.readLong());
+                    case StorageProtocol.READ -> sendRange(channel, out, files, request.requestId(),
+                            body.readUTF(), body.readLong(), body.readInt());
+                    default -> sendError(out, request.requestId(), "Opération inconnue : " + request.code());
+                }
+                // Les réponses s'accumulent tant que d'autres requêtes sont déjà arrivées
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (EOFException e) {
+            // Connexion fermée par le serveur de contrôle
+        } catch (IOException e) {
+            System.err.println("Connexion au nœud interrompue : " + e.getMessage());
+        } finally {
+            files.closeAll();
+        }
+    }
+
+    private void sendCatalog(DataOutputStream out, int requestId, long knownVersion) throws IOException {
+        long version;
+        List<VideoMetadata> videos;
+        synchronized (this) {
+            version = catalogVersion;
+            videos = catalog;
+        }
+        if (knownVersion == version) {
+            StorageProtocol.writeHeader(out, requestId, StorageProtocol.NOT_MODIFIED, 0);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StorageProtocol.writeCatalog(new DataOutputStream(bytes), version, videos);
+        StorageProtocol.writeHeader(out, requestId, StorageProtocol.OK, bytes.size());
+        bytes.writeTo(out);
+    }
+
+    private void sendRange(SocketChannel channel, DataOutputStream out, OpenFiles files,
+                           int requestId, String videoId, long position, int length) throws IOException {
+        VideoMetadata video = videosById.get(videoId);
+        if (video == null) {
+            sendError(out, requestId, "Vidéo non trouvée : " + videoId);
+            return;
+        }
+        if (position < 0 || length < 0 || position > video.getFileSize()) {
+            sendError(out, requestId, "Plage invalide : " + position + "+" + length);
+            return;
+        }
+        FileChannel file;
+        try {
+            file = files.open(video);
+        } catch (IOException e) {
+            sendError(out, requestId, "Lecture impossible : " + e.getMessage());
+            return;
+        }
+        int bytes = (int) Math.min(Math.min(length, StorageProtocol.MAX_READ), video.getFileSize() - position);
+
+        // En-tête dans le tampon, vidé avant d'écrire directement sur le canal
+        StorageProtocol.writeHeader(out, requestId, StorageProtocol.OK, bytes);
+        out.flush();
+        long sent = 0;
+        while (sent < bytes) {
+            long n = file.transferTo(position + sent, bytes - sent, channel);
+            if (n <= 0) {
+                // Fichier raccourci depuis le scan : l'en-tête est parti, seule la fermeture de la
+                // connexion signale l'échec (le serveur de contrôle essaie alors une autre copie)
+                throw new IOException("Fichier raccourci depuis le scan : " + videoId);
+            }
+            sent += n;
+        }
+    }
+
+    // Fichiers ouverts par une connexion, chacun lié à l'instance de métadonnées pour laquelle il
+    // a été ouvert : après un rescan qui retire ou remplace une vidéo (même identifiant, nouvelle
+    // instance), l'ancien fichier est fermé à la requête suivante au lieu de servir l'ancien
+    // contenu. Au-delà de MAX_OPEN_FILES, le moins récemment lu est fermé.
+    private final class OpenFiles {
+        private final LinkedHashMap<String, OpenFile> files = new LinkedHashMap<>(16, 0.75f, true);
+        private long catalogSeen = catalogVersion;
+
+        private record OpenFile(VideoMetadata video, FileChannel channel) {
+        }
+
+        FileChannel open(VideoMetadata video) throws IOException {
+            if (catalogSeen != catalogVersion) {
+                catalogSeen = catalogVersion;
+                Map<String, VideoMetadata> current = videosById;
+                files.values().removeIf(file -> {
+                    boolean stale = current.get(file.video().getId()) != file.video();
+                    if (stale) {
+                        close(file);
+                    }
+                    return stale;
+                });
+            }
+            OpenFile file = files.get(video.getId());
+            if (file != null && file.video() != video) {
+                close(files.remove(video.getId()));
+                file = null;
+            }
+            if (file == null) {
+                file = new OpenFile(video, FileChannel.open(Paths.get(video.getFilePath()), StandardOpenOption.READ));
+                files.put(video.getId(), file);
+                if (files.size() > MAX_OPEN_FILES) {
+                    Iterator<OpenFile> eldest = files.values().iterator();
+                    close(eldest.next());
+                    eldest.remove();
+                }
+            }
+            return file.channel();
+        }
+
+        void closeAll() {
+            files.values().forEach(this::close);
+            files.clear();
+        }
+
+        private void close(OpenFile file) {
+            try {
+                file.channel().close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void sendError(DataOutputStream out, int requestId, String message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(message);
+        StorageProtocol.writeHeader(out, requestId, StorageProtocol.ERROR, bytes.size());
+        bytes.writeTo(out);
+    }
+
+    // Relecture périodique des répertoires (intervalle en secondes, 0 = désactivée)
+    private void startPeriodicRescan(int intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "node-rescan");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> storages.forEach(VideoStorage::rescan),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage : StorageNode <port> <répertoire>...");
+            System.exit(1);
+        }
+        new StorageNode(Integer.parseInt(args[0]), List.of(args).subList(1, args.length)).start();
+    }
+}
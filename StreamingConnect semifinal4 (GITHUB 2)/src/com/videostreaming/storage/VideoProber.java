@@ -0,0 +1,148 @@
+package com.videostreaming.storage;
+
+import com.videostreaming.conf.ConfigLoader;
+import com.videostreaming.model.VideoMetadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sondage des vidéos en parallèle sur un pool borné partagé par tous les stockages.
+// Le conteneur MP4 est lu directement (Mp4Parser) ; ffprobe ne sert plus que de repli
+// pour les fichiers que l'analyseur ne reconnaît pas. Chaque ffprobe a un délai maximal :
+// un processus bloqué (fichier corrompu) est tué et la vidéo reste avec une durée inconnue (0).
+final class VideoProber {
+    static ConfigLoader config = new ConfigLoader(Paths.get("conf/conf.properties"));
+    private static final int CONFIGURED_THREADS = config.getInt("storage.probe.threads", 0); // 0 = nombre de cœurs
+    private static final int THREADS = CONFIGURED_THREADS > 0 ? CONFIGURED_THREADS : Runtime.getRuntime().availableProcessors();
+    private static final long TIMEOUT_SECONDS = config.getLong("storage.probe.timeout", 30);
+    private static final boolean FFPROBE_FALLBACK = Boolean.parseBoolean(config.getProperty("storage.probe.ffprobe", "true"));
+
+    // Passe à false si ffprobe est introuvable : inutile de retenter pour chaque fichier
+    private static volatile boolean ffprobeAvailable = FFPROBE_FALLBACK;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread t = new Thread(r, "ffprobe-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private VideoProber() {
+    }
+
+    // Renseigne durée, débit, codec et résolution de chaque vidéo ; l'avancement est affiché par tranche de 10 %
+    static void probeAll(String label, List<VideoMetadata> videos) {
+        if (videos.isEmpty()) {
+            return;
+        }
+        int total = videos.size();
+        int step = Math.max(1, total / 10);
+        AtomicInteger done = new AtomicInteger();
+
+        List<Future<?>> results = new ArrayList<>(total);
+        for (VideoMetadata video : videos) {
+            results.add(POOL.submit(() -> {
+                probe(video);
+                int count = done.incrementAndGet();
+                if (count % step == 0 || count == total) {
+                    System.out.println("Sondage " + label + " : " + count + " / " + total);
+                }
+            }));
+        }
+
+        for (int i = 0; i < total; i++) {
+            try {
+                results.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.forEach(result -> result.cancel(true));
+                return;
+            } catch (ExecutionException e) {
+                System.err.println("Sondage impossible pour " + videos.get(i).getFilePath() + " : " + e.getCause());
+            }
+        }
+    }
+
+    static void probe(VideoMetadata video) {
+        Path path = Paths.get(video.getFilePath());
+        try {
+            Mp4Parser.Mp4Info info = Mp4Parser.parse(path);
+            if (info != null) {
+                video.setDuration((long) info.durationSeconds());
+                video.setBitrate(info.bitrate());
+                video.setCodec(info.codec());
+                video.setWidth(info.width());
+                video.setHeight(info.height());
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("Lecture du conteneur impossible pour " + path + " : " + e.getMessage());
+        }
+
+        if (ffprobeAvailable) {
+            video.setDuration(probeDuration(path));
+        }
+    }
+
+    // Durée en secondes, 0 si ffprobe échoue ou dépasse le délai
+    static long probeDuration(Path videoPath) {
+        Process process = null;
+        try {
+            try {
+                process = new ProcessBuilder(
+                        "ffprobe", "-v", "error", "-show_entries", "format=duration",
+                        "-of", "default=noprint_wrappers=1:nokey=1", videoPath.toString())
+                        .redirectError(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+            } catch (IOException e) {
+                // Seule l'absence de l'exécutable désactive le repli ; un échec passager (trop de
+                // fichiers ouverts sous le pool parallèle...) ne concerne que ce fichier
+                if (isMissingExecutable(e)) {
+                    ffprobeAvailable = false;
+                    System.err.println("ffprobe indisponible, repli désactivé : " + e.getMessage());
+                } else {
+                    System.err.println("Lancement de ffprobe impossible pour " + videoPath + " : " + e.getMessage());
+                }
+                return 0;
+            }
+            // La sortie ne fait qu'une ligne : elle tient dans le tampon du tube jusqu'à la fin du processus
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("ffprobe bloqué depuis " + TIMEOUT_SECONDS + " s, abandon : " + videoPath);
+                return 0;
+            }
+            String output;
+            try (InputStream in = process.getInputStream()) {
+                output = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+            return output.isEmpty() ? 0 : (long) Double.parseDouble(output.lines().findFirst().orElse("0"));
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Impossible d'extraire la durée de la vidéo : " + e.getMessage());
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            if (process != null && process.isAlive()) {
+                // Sous-processus d'abord : une fois ffprobe tué, ils ne lui sont plus rattachés
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    // "error=2" : ENOENT sous Unix, ERROR_FILE_NOT_FOUND sous Windows
+    private static boolean isMissingExecutable(IOException e) {
+        return e.getMessage() != null && e.getMessage().contains("error=2,");
+    }
+}
@@ -5,42 +5,160 @@ import com.videostreaming.storage.VideoStorageServer;
 
 import java.io.*;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.*;
 
 public class VideoStorage implements VideoStorageServer {
-    private List<VideoMetadata> videos;
+    private volatile List<VideoMetadata> videos;
+    private volatile Map<String, VideoMetadata> videosById;
     private Path storageDirectory;
+    private final List<StorageChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Cache disque des métadonnées, dans le répertoire de stockage
+    private final MetadataCache cache;
+
+    public static final String DEFAULT_CACHE_FILE = ".metadata-cache";
 
     public VideoStorage(Path storageDirectory) {
+        this(storageDirectory, DEFAULT_CACHE_FILE);
+    }
+
+    public VideoStorage(Path storageDirectory, String cacheFileName) {
         this.storageDirectory = storageDirectory;
-        this.videos = scanVideosInDirectory();
+        this.cache = MetadataCache.load(storageDirectory, cacheFileName);
+        List<VideoMetadata> scanned = scanVideosInDirectory(Map.of());
+        setVideos(scanned != null ? scanned : List.of());
     }
 
-    private List<VideoMetadata> scanVideosInDirectory() {
+    // Seuls les fichiers absents du cache, ou dont la taille / date de modification a changé,
+    // sont sondés (en parallèle) ; les vidéos déjà connues et inchangées gardent la même instance.
+    // Les nouvelles vidéos passent ensuite par l'étape faststart (copie avec moov en tête).
+    private List<VideoMetadata> scanVideosInDirectory(Map<String, VideoMetadata> known) {
         List<VideoMetadata> foundVideos = new ArrayList<>();
+        List<VideoMetadata> toProbe = new ArrayList<>();
+        List<BasicFileAttributes> probedAttributes = new ArrayList<>();
+        Map<VideoMetadata, BasicFileAttributes> toIngest = new LinkedHashMap<>();
+        Set<String> keys = new HashSet<>();
         try (Stream<Path> paths = Files.walk(storageDirectory)) {
-            foundVideos = paths
-                    .filter(path -> path.toString().toLowerCase().endsWith(".mp4"))
-                    .map(VideoMetadata::new)
-                    .collect(Collectors.toList());
+            for (Path path : paths.filter(p -> p.toString().toLowerCase().endsWith(".mp4")
+                    && !Faststart.isCopy(storageDirectory, p)).collect(Collectors.toList())) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                keys.add(cache.key(path));
+
+                VideoMetadata video = cache.lookup(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+                if (video == null) {
+                    video = new VideoMetadata();
+                    video.setId(cache.idFor(path));
+                    video.setTitle(path.getFileName().toString());
+                    video.setFilePath(path.toString());
+                    video.setFileSize(attributes.size());
+                    toProbe.add(video);
+                    probedAttributes.add(attributes);
+                    toIngest.put(video, attributes);
+                } else if (known.containsKey(video.getId())) {
+                    video = known.get(video.getId());
+                } else {
+                    toIngest.put(video, attributes);
+                }
+                foundVideos.add(video);
+            }
         } catch (IOException e) {
             e.printStackTrace();
+            return null;
+        }
+
+        VideoProber.probeAll(storageDirectory.toString(), toProbe);
+        for (int i = 0; i < toProbe.size(); i++) {
+            VideoMetadata video = toProbe.get(i);
+            BasicFileAttributes attributes = probedAttributes.get(i);
+            cache.put(Paths.get(video.getFilePath()), attributes.size(), attributes.lastModifiedTime().toMillis(), video);
+        }
+        cache.retain(keys);
+        cache.save();
+        toIngest.forEach(this::ingest);
+        Faststart.retain(storageDirectory, keys);
+        if (!toProbe.isEmpty()) {
+            System.out.println("Stockage " + storageDirectory + " : " + toProbe.size() + " fichier(s) sondé(s), "
+                    + (foundVideos.size() - toProbe.size()) + " lu(s) depuis le cache");
         }
         return foundVideos;
     }
 
+    // Sert la copie faststart de la vidéo si l'original a moov en fin de fichier
+    private void ingest(VideoMetadata video, BasicFileAttributes attributes) {
+        Path source = Paths.get(video.getFilePath());
+        Path served = Faststart.servedPath(storageDirectory, source, attributes);
+        if (served.equals(source)) {
+            return;
+        }
+        try {
+            video.setFileSize(Files.size(served));
+            video.setFilePath(served.toString());
+        } catch (IOException e) {
+            System.err.println("Copie faststart illisible pour " + source + " : " + e.getMessage());
+        }
+    }
+
+    private void setVideos(List<VideoMetadata> scanned) {
+        Map<String, VideoMetadata> byId = new HashMap<>();
+        for (VideoMetadata video : scanned) {
+            byId.put(video.getId(), video);
+        }
+        this.videos = List.copyOf(scanned);
+        this.videosById = byId;
+    }
+
     @Override
     public List<VideoMetadata> getAvailableVideos() {
         return videos;
     }
 
+    @Override
+    public void addChangeListener(StorageChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // Les fichiers inchangés gardent leurs métadonnées et leur identifiant ; un fichier modifié
+    // est retiré puis ajouté sous le même identifiant
+    @Override
+    public synchronized void rescan() {
+        Map<String, VideoMetadata> known = videosById;
+        List<VideoMetadata> scanned = scanVideosInDirectory(known);
+        if (scanned == null) {
+            return;
+        }
+
+        Map<String, VideoMetadata> scannedById = new HashMap<>();
+        List<VideoMetadata> added = new ArrayList<>();
+        for (VideoMetadata video : scanned) {
+            scannedById.put(video.getId(), video);
+            if (known.get(video.getId()) != video) {
+                added.add(video);
+            }
+        }
+        List<VideoMetadata> removed = new ArrayList<>();
+        for (VideoMetadata video : known.values()) {
+            if (scannedById.get(video.getId()) != video) {
+                removed.add(video);
+            }
+        }
+
+        setVideos(scanned);
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            System.out.println("Stockage " + storageDirectory + " : " + added.size() + " vidéo(s) ajoutée(s), " + removed.size() + " retirée(s)");
+            for (StorageChangeListener listener : listeners) {
+                listener.videosChanged(this, added, removed);
+            }
+        }
+    }
+
     @Override
     public void streamVideo(String videoId, OutputStream clientOutputStream) {
-        VideoMetadata video = videos.stream()
-                .filter(v -> v.getId().equals(videoId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Vidéo non trouvée"));
+        VideoMetadata video = videosById.get(videoId);
+        if (video == null) {
+            throw new IllegalArgumentException("Vidéo non trouvée");
+        }
 
         try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(video.getFilePath()))) {
             byte[] buffer = new byte[4096];
@@ -53,4 +171,9 @@ public class VideoStorage implements VideoStorageServer {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public String toString() {
+        return storageDirectory.toString();
+    }
+}
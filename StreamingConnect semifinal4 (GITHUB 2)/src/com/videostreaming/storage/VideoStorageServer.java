@@ -1,10 +1,23 @@
 package com.videostreaming.storage;
 
 import com.videostreaming.model.VideoMetadata;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 public interface VideoStorageServer {
     List<VideoMetadata> getAvailableVideos();
     void streamVideo(String videoId, OutputStream clientOutputStream);
-}
\ No newline at end of file
+
+    // Relit le stockage et notifie les écouteurs des vidéos ajoutées / retirées
+    void rescan();
+    void addChangeListener(StorageChangeListener listener);
+
+    // Accès en lecture au contenu d'une vidéo de ce stockage (fichier local par défaut)
+    default FileChannel openVideo(VideoMetadata video) throws IOException {
+        return FileChannel.open(Paths.get(video.getFilePath()), StandardOpenOption.READ);
+    }
+}